@@ -0,0 +1,48 @@
+package com.ttplan.repository;
+
+import com.ttplan.model.Assignment;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Inserts new assignments with JDBC batch statements. Hibernate cannot batch inserts of entities with
+ * IDENTITY ids, so bulk writers (CSV import, roster generation) go through here. The inserted rows get
+ * no ids back and are not attached to the persistence context; callers publish month-wide change events.
+ */
+@Repository
+public class AssignmentBatchWriter {
+    private static final String INSERT_ASSIGNMENT =
+            "insert into assignment (assignment_date, assignment_type, employee_id, shift_id, vehicle_id) values (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public AssignmentBatchWriter(JdbcTemplate jdbcTemplate,
+                                 @Value("${ttplan.assignment-batch.size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    public int insert(List<Assignment> assignments) {
+        if (assignments.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(INSERT_ASSIGNMENT, assignments, batchSize, (statement, assignment) -> {
+            statement.setDate(1, Date.valueOf(assignment.getAssignmentDate()));
+            statement.setString(2, assignment.getAssignmentType());
+            statement.setLong(3, assignment.getEmployee().getEmployeeId());
+            statement.setLong(4, assignment.getShift().getShiftId());
+            if (assignment.getVehicle() == null) {
+                statement.setNull(5, Types.BIGINT);
+            } else {
+                statement.setLong(5, assignment.getVehicle().getVehicleId());
+            }
+        });
+        return assignments.size();
+    }
+}
@@ -0,0 +1,108 @@
+package com.ttplan.repository;
+
+import com.ttplan.event.AssignmentChange;
+import com.ttplan.model.Assignment;
+import com.ttplan.model.Employee;
+import com.ttplan.model.Shift;
+import com.ttplan.model.Vehicle;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import javax.persistence.LockModeType;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Assignments read for booking checks, with shift, employee and vehicle fetched in the same select so
+ * checking a window of days costs one query. Also takes the row locks that serialize checks on the same
+ * employee or vehicle.
+ */
+@Repository
+public class AssignmentBookingRepository {
+    private static final String SELECT_BOOKINGS = "select a from Assignment a"
+            + " left join fetch a.shift"
+            + " left join fetch a.employee e"
+            + " left join fetch a.vehicle v"
+            + " where a.assignmentDate between :from and :to";
+    // keeps "in ()" out of the SQL when one of the id lists is empty
+    private static final List<Long> NO_IDS = Collections.singletonList(-1L);
+
+    private final EntityManager entityManager;
+
+    public AssignmentBookingRepository(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    public List<Assignment> findBetween(LocalDate from, LocalDate to) {
+        return entityManager.createQuery(SELECT_BOOKINGS, Assignment.class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+    }
+
+    /**
+     * Assignments between the two dates that book one of the given employees or vehicles.
+     */
+    public List<Assignment> findForResourcesBetween(LocalDate from, LocalDate to,
+                                                    Collection<Long> employeeIds, Collection<Long> vehicleIds) {
+        return entityManager.createQuery(SELECT_BOOKINGS + " and (e.employeeId in :employeeIds or v.vehicleId in :vehicleIds)", Assignment.class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .setParameter("employeeIds", employeeIds.isEmpty() ? NO_IDS : employeeIds)
+                .setParameter("vehicleIds", vehicleIds.isEmpty() ? NO_IDS : vehicleIds)
+                .getResultList();
+    }
+
+    public List<Shift> findShifts(Collection<Long> shiftIds) {
+        if (shiftIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return entityManager.createQuery("select s from Shift s where s.shiftId in :ids", Shift.class)
+                .setParameter("ids", shiftIds)
+                .getResultList();
+    }
+
+    /**
+     * The assignment as it is stored, read as scalars so neither a managed instance the caller has
+     * already modified nor a flush of that modification can show through. Used to tell which plan cell an
+     * update or delete takes the assignment out of.
+     */
+    public Optional<AssignmentChange> findStoredAsRemoval(Long assignmentId) {
+        List<Object[]> rows = entityManager.createQuery("select a.assignmentId, a.assignmentDate, e.employeeId, e.employeeSurname,"
+                        + " a.assignmentType, s.shiftNumber, v.vehicleName from Assignment a"
+                        + " left join a.employee e left join a.shift s left join a.vehicle v"
+                        + " where a.assignmentId = :assignmentId", Object[].class)
+                .setParameter("assignmentId", assignmentId)
+                .setFlushMode(FlushModeType.COMMIT)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        Object[] row = rows.get(0);
+        return Optional.of(new AssignmentChange(AssignmentChange.Kind.REMOVED, (Long) row[0], (LocalDate) row[1],
+                (Long) row[2], (String) row[3], (String) row[4], (String) row[5], (String) row[6]));
+    }
+
+    /**
+     * Locks the employee and vehicle rows until the current transaction ends, in id order and employees
+     * before vehicles so concurrent callers cannot deadlock on each other.
+     */
+    public void lockResources(Collection<Long> employeeIds, Collection<Long> vehicleIds) {
+        if (!employeeIds.isEmpty()) {
+            entityManager.createQuery("select e from Employee e where e.employeeId in :ids order by e.employeeId", Employee.class)
+                    .setParameter("ids", employeeIds)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .getResultList();
+        }
+        if (!vehicleIds.isEmpty()) {
+            entityManager.createQuery("select v from Vehicle v where v.vehicleId in :ids order by v.vehicleId", Vehicle.class)
+                    .setParameter("ids", vehicleIds)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .getResultList();
+        }
+    }
+}
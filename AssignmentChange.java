@@ -0,0 +1,82 @@
+package com.ttplan.event;
+
+import com.ttplan.model.Assignment;
+import com.ttplan.model.Employee;
+
+import java.time.LocalDate;
+
+/**
+ * One plan cell touched by an assignment write: the employee and day an assignment was saved to or
+ * removed from. An update that moves an assignment produces a REMOVED change for the old cell and a
+ * SAVED change for the new one.
+ */
+public class AssignmentChange {
+    public enum Kind {
+        SAVED, REMOVED
+    }
+
+    private final Kind kind;
+    private final Long assignmentId;
+    private final LocalDate assignmentDate;
+    private final Long employeeId;
+    private final String employeeSurname;
+    private final String assignmentType;
+    private final String shiftNumber;
+    private final String vehicleName;
+
+    public AssignmentChange(Kind kind, Assignment assignment) {
+        Employee employee = assignment.getEmployee();
+        this.kind = kind;
+        this.assignmentId = assignment.getAssignmentId();
+        this.assignmentDate = assignment.getAssignmentDate();
+        this.employeeId = employee == null ? null : employee.getEmployeeId();
+        this.employeeSurname = employee == null ? null : employee.getEmployeeSurname();
+        this.assignmentType = assignment.getAssignmentType();
+        this.shiftNumber = assignment.getShift() == null ? null : assignment.getShift().getShiftNumber();
+        this.vehicleName = assignment.getVehicle() == null ? null : assignment.getVehicle().getVehicleName();
+    }
+
+    public AssignmentChange(Kind kind, Long assignmentId, LocalDate assignmentDate, Long employeeId, String employeeSurname,
+                            String assignmentType, String shiftNumber, String vehicleName) {
+        this.kind = kind;
+        this.assignmentId = assignmentId;
+        this.assignmentDate = assignmentDate;
+        this.employeeId = employeeId;
+        this.employeeSurname = employeeSurname;
+        this.assignmentType = assignmentType;
+        this.shiftNumber = shiftNumber;
+        this.vehicleName = vehicleName;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public Long getAssignmentId() {
+        return assignmentId;
+    }
+
+    public LocalDate getAssignmentDate() {
+        return assignmentDate;
+    }
+
+    public Long getEmployeeId() {
+        return employeeId;
+    }
+
+    public String getEmployeeSurname() {
+        return employeeSurname;
+    }
+
+    public String getAssignmentType() {
+        return assignmentType;
+    }
+
+    public String getShiftNumber() {
+        return shiftNumber;
+    }
+
+    public String getVehicleName() {
+        return vehicleName;
+    }
+}
@@ -0,0 +1,49 @@
+package com.ttplan.model;
+
+import java.time.LocalDate;
+
+public class AssignmentConflict {
+    public enum Resource {
+        EMPLOYEE, VEHICLE
+    }
+
+    private final Resource resource;
+    private final Long resourceId;
+    private final LocalDate assignmentDate;
+    private final Long firstAssignmentId;
+    private final Long secondAssignmentId;
+
+    public AssignmentConflict(Resource resource, Long resourceId, LocalDate assignmentDate, Long firstAssignmentId, Long secondAssignmentId) {
+        this.resource = resource;
+        this.resourceId = resourceId;
+        this.assignmentDate = assignmentDate;
+        this.firstAssignmentId = firstAssignmentId;
+        this.secondAssignmentId = secondAssignmentId;
+    }
+
+    public Resource getResource() {
+        return resource;
+    }
+
+    public Long getResourceId() {
+        return resourceId;
+    }
+
+    public LocalDate getAssignmentDate() {
+        return assignmentDate;
+    }
+
+    public Long getFirstAssignmentId() {
+        return firstAssignmentId;
+    }
+
+    public Long getSecondAssignmentId() {
+        return secondAssignmentId;
+    }
+
+    @Override
+    public String toString() {
+        return resource + " " + resourceId + " is double-booked on " + assignmentDate
+                + " (assignments " + firstAssignmentId + " and " + secondAssignmentId + ")";
+    }
+}
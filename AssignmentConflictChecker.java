@@ -0,0 +1,221 @@
+package com.ttplan.service.impl;
+
+import com.ttplan.model.Assignment;
+import com.ttplan.model.AssignmentConflict;
+import com.ttplan.model.AssignmentConflict.Resource;
+import com.ttplan.model.Shift;
+import com.ttplan.repository.AssignmentBookingRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Finds employees and vehicles booked on overlapping shifts. A booking is the {@link ShiftInterval} of
+ * the shift on the assignment date. Neighbouring days are read as well so overnight shifts are compared
+ * with the next morning.
+ */
+@Component
+public class AssignmentConflictChecker {
+    private final AssignmentBookingRepository assignmentBookingRepository;
+
+    public AssignmentConflictChecker(AssignmentBookingRepository assignmentBookingRepository) {
+        this.assignmentBookingRepository = assignmentBookingRepository;
+    }
+
+    /**
+     * Conflicts the given assignment would create with what is already stored.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<AssignmentConflict> findConflicts(Assignment assignment) {
+        return findConflicts(Collections.singletonList(assignment)).get(0);
+    }
+
+    /**
+     * Conflicts each candidate would create with what is stored and with the conflict-free candidates
+     * before it in the list; the result has one entry per candidate. Stored rows with the id of a
+     * candidate are the versions being replaced and are ignored. The employee and vehicle rows of the
+     * candidates are locked first, so a concurrent check of the same employee or vehicle waits until the
+     * caller's transaction has saved and committed.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<List<AssignmentConflict>> findConflicts(List<Assignment> candidates) {
+        Map<Long, Shift> storedShifts = storedShifts(candidates);
+        List<Booking> candidateBookings = new ArrayList<>(candidates.size());
+        Set<Long> employeeIds = new TreeSet<>();
+        Set<Long> vehicleIds = new TreeSet<>();
+        Set<Long> candidateIds = new HashSet<>();
+        LocalDate first = null;
+        LocalDate last = null;
+        for (Assignment candidate : candidates) {
+            if (candidate.getAssignmentId() != null) {
+                candidateIds.add(candidate.getAssignmentId());
+            }
+            Booking candidateBooking = Booking.of(candidate, candidateShift(candidate, storedShifts));
+            candidateBookings.add(candidateBooking);
+            if (candidateBooking == null) {
+                continue;
+            }
+            addIfPresent(employeeIds, employeeId(candidate));
+            addIfPresent(vehicleIds, vehicleId(candidate));
+            LocalDate assignmentDate = candidate.getAssignmentDate();
+            first = first == null || assignmentDate.isBefore(first) ? assignmentDate : first;
+            last = last == null || assignmentDate.isAfter(last) ? assignmentDate : last;
+        }
+
+        BookingIndex<Booking> employeeBookings = new BookingIndex<>();
+        BookingIndex<Booking> vehicleBookings = new BookingIndex<>();
+        if (!employeeIds.isEmpty() || !vehicleIds.isEmpty()) {
+            assignmentBookingRepository.lockResources(employeeIds, vehicleIds);
+            for (Assignment existing : assignmentBookingRepository.findForResourcesBetween(first.minusDays(1), last.plusDays(1), employeeIds, vehicleIds)) {
+                Booking booking = Booking.of(existing, existing.getShift());
+                if (booking == null || candidateIds.contains(existing.getAssignmentId())) {
+                    continue;
+                }
+                employeeBookings.add(employeeId(existing), booking.interval, booking);
+                vehicleBookings.add(vehicleId(existing), booking.interval, booking);
+            }
+        }
+
+        List<List<AssignmentConflict>> result = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            Assignment candidate = candidates.get(i);
+            Booking booking = candidateBookings.get(i);
+            if (booking == null) {
+                result.add(Collections.emptyList());
+                continue;
+            }
+            List<AssignmentConflict> conflicts = new ArrayList<>();
+            Booking employeeOverlap = employeeBookings.overlapping(employeeId(candidate), booking.interval, 0);
+            if (employeeOverlap != null) {
+                conflicts.add(conflict(Resource.EMPLOYEE, employeeId(candidate), employeeOverlap, booking));
+            }
+            Booking vehicleOverlap = vehicleBookings.overlapping(vehicleId(candidate), booking.interval, 0);
+            if (vehicleOverlap != null) {
+                conflicts.add(conflict(Resource.VEHICLE, vehicleId(candidate), vehicleOverlap, booking));
+            }
+            if (conflicts.isEmpty()) {
+                employeeBookings.add(employeeId(candidate), booking.interval, booking);
+                vehicleBookings.add(vehicleId(candidate), booking.interval, booking);
+            }
+            result.add(conflicts);
+        }
+        return result;
+    }
+
+    /**
+     * All conflicts within a month, found in one pass per resource over the bookings sorted by start.
+     */
+    public List<AssignmentConflict> findConflicts(YearMonth month) {
+        List<Assignment> assignments = assignmentBookingRepository.findBetween(month.atDay(1).minusDays(1), month.atEndOfMonth());
+        List<Booking> bookings = new ArrayList<>(assignments.size());
+        for (Assignment assignment : assignments) {
+            Booking booking = Booking.of(assignment, assignment.getShift());
+            if (booking != null) {
+                bookings.add(booking);
+            }
+        }
+        bookings.sort(Comparator.comparingLong(booking -> booking.interval.start));
+
+        List<AssignmentConflict> conflicts = new ArrayList<>();
+        sweep(bookings, month, Resource.EMPLOYEE, booking -> employeeId(booking.assignment), conflicts);
+        sweep(bookings, month, Resource.VEHICLE, booking -> vehicleId(booking.assignment), conflicts);
+        return conflicts;
+    }
+
+    private static void sweep(List<Booking> sortedBookings, YearMonth month, Resource resource,
+                              Function<Booking, Long> resourceId, List<AssignmentConflict> conflicts) {
+        Map<Long, Booking> latestFinishing = new HashMap<>();
+        for (Booking booking : sortedBookings) {
+            Long id = resourceId.apply(booking);
+            if (id == null) {
+                continue;
+            }
+            Booking previous = latestFinishing.get(id);
+            if (previous != null && previous.interval.finish > booking.interval.start
+                    && YearMonth.from(booking.assignment.getAssignmentDate()).equals(month)) {
+                conflicts.add(conflict(resource, id, previous, booking));
+            }
+            if (previous == null || booking.interval.finish > previous.interval.finish) {
+                latestFinishing.put(id, booking);
+            }
+        }
+    }
+
+    private static AssignmentConflict conflict(Resource resource, Long resourceId, Booking first, Booking second) {
+        return new AssignmentConflict(resource, resourceId, second.assignment.getAssignmentDate(),
+                first.assignment.getAssignmentId(), second.assignment.getAssignmentId());
+    }
+
+    /**
+     * The stored shifts the candidates refer to. A candidate bound from a form carries only the shift id,
+     * so its times are always read from the shift table rather than from the candidate.
+     */
+    private Map<Long, Shift> storedShifts(List<Assignment> candidates) {
+        Set<Long> shiftIds = new HashSet<>();
+        for (Assignment candidate : candidates) {
+            if (candidate.getShift() != null && candidate.getShift().getShiftId() != null) {
+                shiftIds.add(candidate.getShift().getShiftId());
+            }
+        }
+        Map<Long, Shift> shiftsById = new HashMap<>();
+        for (Shift shift : assignmentBookingRepository.findShifts(shiftIds)) {
+            shiftsById.put(shift.getShiftId(), shift);
+        }
+        return shiftsById;
+    }
+
+    /**
+     * The shift to book the candidate on. A shift that cannot be resolved to its times is an error rather
+     * than a booking of nothing, so incomplete input never lets a candidate past the check.
+     */
+    private static Shift candidateShift(Assignment candidate, Map<Long, Shift> storedShifts) {
+        Shift shift = candidate.getShift();
+        if (shift == null) {
+            return null;
+        }
+        if (shift.getShiftId() != null) {
+            shift = storedShifts.get(shift.getShiftId());
+            if (shift == null) {
+                throw new IllegalArgumentException("Shift " + candidate.getShift().getShiftId() + " does not exist");
+            }
+        }
+        if (shift.getStartTime() == null || shift.getFinishTime() == null) {
+            throw new IllegalArgumentException("Shift " + shift.getShiftNumber() + " has no start or finish time");
+        }
+        return shift;
+    }
+
+    private static void addIfPresent(Set<Long> ids, Long id) {
+        if (id != null) {
+            ids.add(id);
+        }
+    }
+
+    private static Long employeeId(Assignment assignment) {
+        return assignment.getEmployee() == null ? null : assignment.getEmployee().getEmployeeId();
+    }
+
+    private static Long vehicleId(Assignment assignment) {
+        return assignment.getVehicle() == null ? null : assignment.getVehicle().getVehicleId();
+    }
+
+    private static final class Booking {
+        private final Assignment assignment;
+        private final ShiftInterval interval;
+
+        private Booking(Assignment assignment, ShiftInterval interval) {
+            this.assignment = assignment;
+            this.interval = interval;
+        }
+
+        private static Booking of(Assignment assignment, Shift shift) {
+            ShiftInterval interval = ShiftInterval.of(assignment.getAssignmentDate(), shift);
+            return interval == null ? null : new Booking(assignment, interval);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.ttplan.exception;
+
+import com.ttplan.model.AssignmentConflict;
+
+import java.util.List;
+
+public class AssignmentConflictException extends RuntimeException {
+    private final List<AssignmentConflict> conflicts;
+
+    public AssignmentConflictException(List<AssignmentConflict> conflicts) {
+        super(conflicts.toString());
+        this.conflicts = conflicts;
+    }
+
+    public List<AssignmentConflict> getConflicts() {
+        return conflicts;
+    }
+}
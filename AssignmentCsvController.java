@@ -0,0 +1,55 @@
+package com.ttplan.controller;
+
+import com.ttplan.service.AssignmentCsvService;
+import com.ttplan.service.AssignmentCsvService.ImportResult;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+
+@Controller
+@RequestMapping("/admin/assignments")
+public class AssignmentCsvController {
+    private final AssignmentCsvService assignmentCsvService;
+
+    public AssignmentCsvController(AssignmentCsvService assignmentCsvService) {
+        this.assignmentCsvService = assignmentCsvService;
+    }
+
+    @PostMapping("/import")
+    public String importAssignments(@RequestParam("file") MultipartFile file, RedirectAttributes redirectAttributes) {
+        if (file.isEmpty()) {
+            redirectAttributes.addFlashAttribute("errorMessage", "Select a CSV file to import!");
+            return "redirect:/admin/assignments";
+        }
+        try (Reader reader = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8)) {
+            ImportResult result = assignmentCsvService.importAssignments(reader);
+            redirectAttributes.addFlashAttribute("importedCount", result.getImportedCount());
+            redirectAttributes.addFlashAttribute("importErrors", result.getErrors());
+            redirectAttributes.addFlashAttribute("importErrorCount", result.getErrorCount());
+        } catch (IOException e) {
+            return "error/error";
+        }
+        return "redirect:/admin/assignments";
+    }
+
+    @GetMapping("/export")
+    public void exportAssignments(@RequestParam("month") int month,
+                                  @RequestParam("year") int year,
+                                  HttpServletResponse response) throws IOException {
+        response.setContentType("text/csv");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader("Content-Disposition", String.format("attachment; filename=\"assignments-%d-%02d.csv\"", year, month));
+        assignmentCsvService.exportAssignments(YearMonth.of(year, month), response.getWriter());
+    }
+}
@@ -0,0 +1,44 @@
+package com.ttplan.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.YearMonth;
+import java.util.List;
+
+public interface AssignmentCsvService {
+    String HEADER = "assignmentDate,assignmentType,employeeName,employeeSurname,shiftNumber,vehicleName";
+    int MAX_REPORTED_ERRORS = 100;
+
+    ImportResult importAssignments(Reader reader) throws IOException;
+
+    void exportAssignments(YearMonth month, Writer writer) throws IOException;
+
+    /**
+     * Outcome of an import. Only the first {@link #MAX_REPORTED_ERRORS} error messages are kept, because
+     * the result ends up in the session as a flash attribute; {@link #getErrorCount()} is the full count.
+     */
+    class ImportResult {
+        private final int importedCount;
+        private final List<String> errors;
+        private final int errorCount;
+
+        public ImportResult(int importedCount, List<String> errors, int errorCount) {
+            this.importedCount = importedCount;
+            this.errors = errors;
+            this.errorCount = errorCount;
+        }
+
+        public int getImportedCount() {
+            return importedCount;
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        public int getErrorCount() {
+            return errorCount;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.ttplan.service.impl;
+
+import com.ttplan.cache.ReferenceDataCache;
+import com.ttplan.event.AssignmentsChangedEvent;
+import com.ttplan.model.Assignment;
+import com.ttplan.model.AssignmentConflict;
+import com.ttplan.model.Employee;
+import com.ttplan.model.Shift;
+import com.ttplan.model.Vehicle;
+import com.ttplan.repository.AssignmentBatchWriter;
+import com.ttplan.repository.AssignmentRepository;
+import com.ttplan.service.AssignmentCsvService;
+import com.ttplan.service.AssignmentService;
+import com.ttplan.service.EmployeeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.stream.Stream;
+
+@Service
+public class AssignmentCsvServiceImpl implements AssignmentCsvService {
+    private static final int COLUMN_COUNT = 6;
+
+    private final AssignmentRepository assignmentRepository;
+    private final AssignmentService assignmentService;
+    private final AssignmentConflictChecker assignmentConflictChecker;
+    private final EmployeeService employeeService;
+    private final ReferenceDataCache referenceDataCache;
+    private final AssignmentBatchWriter assignmentBatchWriter;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    @Autowired
+    public AssignmentCsvServiceImpl(AssignmentRepository assignmentRepository,
+                                    AssignmentService assignmentService,
+                                    AssignmentConflictChecker assignmentConflictChecker,
+                                    EmployeeService employeeService,
+                                    ReferenceDataCache referenceDataCache,
+                                    AssignmentBatchWriter assignmentBatchWriter,
+                                    EntityManager entityManager,
+                                    ApplicationEventPublisher eventPublisher,
+                                    @Value("${ttplan.csv.batch-size:500}") int batchSize) {
+        this.assignmentRepository = assignmentRepository;
+        this.assignmentService = assignmentService;
+        this.assignmentConflictChecker = assignmentConflictChecker;
+        this.employeeService = employeeService;
+        this.referenceDataCache = referenceDataCache;
+        this.assignmentBatchWriter = assignmentBatchWriter;
+        this.entityManager = entityManager;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    @Transactional(rollbackFor = IOException.class)
+    public ImportResult importAssignments(Reader reader) throws IOException {
+        Map<String, Employee> employeesByName = new HashMap<>();
+        for (Employee employee : employeeService.getAllEmployees()) {
+            employeesByName.put(employeeKey(employee.getEmployeeName(), employee.getEmployeeSurname()), employee);
+        }
+        Map<String, Shift> shiftsByNumber = new HashMap<>();
+        for (Shift shift : referenceDataCache.getAllShifts()) {
+            shiftsByNumber.put(shift.getShiftNumber().toLowerCase(Locale.ROOT), shift);
+        }
+        Map<String, Vehicle> vehiclesByName = new HashMap<>();
+        for (Vehicle vehicle : referenceDataCache.getAllVehicles()) {
+            vehiclesByName.put(vehicle.getVehicleName().toLowerCase(Locale.ROOT), vehicle);
+        }
+
+        ImportErrors errors = new ImportErrors();
+        List<Assignment> batch = new ArrayList<>(batchSize);
+        List<Integer> batchLineNumbers = new ArrayList<>(batchSize);
+        Set<YearMonth> affectedMonths = new HashSet<>();
+        int importedCount = 0;
+        int lineNumber = 0;
+
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty() || (lineNumber == 1 && line.trim().equalsIgnoreCase(HEADER))) {
+                continue;
+            }
+            List<String> columns = parseLine(line);
+            if (columns.size() != COLUMN_COUNT) {
+                errors.add("Line " + lineNumber + ": expected " + COLUMN_COUNT + " columns but found " + columns.size());
+                continue;
+            }
+
+            LocalDate assignmentDate = assignmentService.parseDate(columns.get(0));
+            String assignmentType = columns.get(1);
+            Employee employee = employeesByName.get(employeeKey(columns.get(2), columns.get(3)));
+            Shift shift = shiftsByNumber.get(columns.get(4).toLowerCase(Locale.ROOT));
+            Vehicle vehicle = columns.get(5).isEmpty() ? null : vehiclesByName.get(columns.get(5).toLowerCase(Locale.ROOT));
+
+            if (assignmentDate == null) {
+                errors.add("Line " + lineNumber + ": invalid date '" + columns.get(0) + "'");
+            } else if (assignmentType.isEmpty()) {
+                errors.add("Line " + lineNumber + ": assignment type is empty");
+            } else if (employee == null) {
+                errors.add("Line " + lineNumber + ": unknown employee '" + columns.get(2) + " " + columns.get(3) + "'");
+            } else if (shift == null) {
+                errors.add("Line " + lineNumber + ": unknown shift '" + columns.get(4) + "'");
+            } else if (vehicle == null && !columns.get(5).isEmpty()) {
+                errors.add("Line " + lineNumber + ": unknown vehicle '" + columns.get(5) + "'");
+            } else {
+                Assignment assignment = new Assignment();
+                assignment.setAssignmentDate(assignmentDate);
+                assignment.setAssignmentType(assignmentType);
+                assignment.setEmployee(employee);
+                assignment.setShift(shift);
+                assignment.setVehicle(vehicle);
+                batch.add(assignment);
+                batchLineNumbers.add(lineNumber);
+                if (batch.size() == batchSize) {
+                    importedCount += flush(batch, batchLineNumbers, errors, affectedMonths);
+                }
+            }
+        }
+        importedCount += flush(batch, batchLineNumbers, errors, affectedMonths);
+
+        if (!affectedMonths.isEmpty()) {
+            eventPublisher.publishEvent(new AssignmentsChangedEvent(affectedMonths));
+        }
+        return new ImportResult(importedCount, errors.messages, errors.count);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAssignments(YearMonth month, Writer writer) throws IOException {
+        writer.write(HEADER);
+        writer.write('\n');
+        try (Stream<Assignment> assignments = assignmentRepository.streamAssignmentsByAssignmentDateBetween(month.atDay(1), month.atEndOfMonth())) {
+            Iterator<Assignment> iterator = assignments.iterator();
+            while (iterator.hasNext()) {
+                Assignment assignment = iterator.next();
+                writeRow(writer, assignment);
+                entityManager.detach(assignment);
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Inserts the batch with JDBC batch statements, leaving out rows that would double-book an
+     * employee or vehicle, either against stored assignments (including batches inserted earlier in this
+     * import) or against earlier rows of the file.
+     */
+    private int flush(List<Assignment> batch, List<Integer> batchLineNumbers, ImportErrors errors, Set<YearMonth> affectedMonths) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<List<AssignmentConflict>> conflicts = assignmentConflictChecker.findConflicts(batch);
+        List<Assignment> accepted = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Assignment assignment = batch.get(i);
+            if (!conflicts.get(i).isEmpty()) {
+                AssignmentConflict conflict = conflicts.get(i).get(0);
+                errors.add("Line " + batchLineNumbers.get(i) + ": " + conflict.getResource().name().toLowerCase(Locale.ROOT)
+                        + " is already booked at that time" + (conflict.getFirstAssignmentId() == null
+                        ? " by an earlier line" : " (assignment " + conflict.getFirstAssignmentId() + ")"));
+                continue;
+            }
+            accepted.add(assignment);
+            affectedMonths.add(YearMonth.from(assignment.getAssignmentDate()));
+        }
+        batch.clear();
+        batchLineNumbers.clear();
+        // the bookings read for the check are not needed again; keep the session from growing with the file
+        entityManager.clear();
+        return assignmentBatchWriter.insert(accepted);
+    }
+
+    private void writeRow(Writer writer, Assignment assignment) throws IOException {
+        Employee employee = assignment.getEmployee();
+        Vehicle vehicle = assignment.getVehicle();
+        writer.write(assignment.getAssignmentDate().toString());
+        writer.write(',');
+        writer.write(escape(assignment.getAssignmentType()));
+        writer.write(',');
+        writer.write(escape(employee.getEmployeeName()));
+        writer.write(',');
+        writer.write(escape(employee.getEmployeeSurname()));
+        writer.write(',');
+        writer.write(escape(assignment.getShift().getShiftNumber()));
+        writer.write(',');
+        writer.write(vehicle == null ? "" : escape(vehicle.getVehicleName()));
+        writer.write('\n');
+    }
+
+    private static final class ImportErrors {
+        private final List<String> messages = new ArrayList<>();
+        private int count;
+
+        void add(String message) {
+            if (messages.size() < MAX_REPORTED_ERRORS) {
+                messages.add(message);
+            }
+            count++;
+        }
+    }
+
+    private static String employeeKey(String employeeName, String employeeSurname) {
+        return (employeeName + " " + employeeSurname).toLowerCase(Locale.ROOT);
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static List<String> parseLine(String line) {
+        List<String> columns = new ArrayList<>(COLUMN_COUNT);
+        StringBuilder column = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    column.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    column.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                columns.add(column.toString().trim());
+                column.setLength(0);
+            } else {
+                column.append(c);
+            }
+        }
+        columns.add(column.toString().trim());
+        return columns;
+    }
+}
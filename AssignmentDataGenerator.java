@@ -0,0 +1,108 @@
+package com.ttplan.benchmark;
+
+import com.ttplan.model.Assignment;
+import com.ttplan.model.Employee;
+import com.ttplan.model.Shift;
+import com.ttplan.model.Vehicle;
+import com.ttplan.repository.AssignmentRepository;
+import com.ttplan.repository.EmployeeRepository;
+import com.ttplan.repository.ShiftRepository;
+import com.ttplan.repository.VehicleRepository;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fills the benchmark database with a synthetic depot: N employees, M shifts, K vehicles and one
+ * assignment per employee per day for Y years ending at the current month. A fixed seed keeps runs
+ * comparable.
+ */
+public class AssignmentDataGenerator {
+    static final String[] ASSIGNMENT_TYPES = {"Work", "Leave", "Day off"};
+    private static final int CHUNK_SIZE = 1000;
+
+    private final EmployeeRepository employeeRepository;
+    private final ShiftRepository shiftRepository;
+    private final VehicleRepository vehicleRepository;
+    private final AssignmentRepository assignmentRepository;
+    private final Random random = new Random(42);
+
+    private final List<Employee> employees = new ArrayList<>();
+    private final List<Shift> shifts = new ArrayList<>();
+    private final List<Vehicle> vehicles = new ArrayList<>();
+
+    public AssignmentDataGenerator(EmployeeRepository employeeRepository,
+                                   ShiftRepository shiftRepository,
+                                   VehicleRepository vehicleRepository,
+                                   AssignmentRepository assignmentRepository) {
+        this.employeeRepository = employeeRepository;
+        this.shiftRepository = shiftRepository;
+        this.vehicleRepository = vehicleRepository;
+        this.assignmentRepository = assignmentRepository;
+    }
+
+    public void generate(int employeeCount, int shiftCount, int vehicleCount, int years) {
+        for (int i = 1; i <= employeeCount; i++) {
+            Employee employee = new Employee();
+            employee.setEmployeeName("Name" + i);
+            employee.setEmployeeSurname("Surname" + i);
+            employees.add(employee);
+        }
+        employeeRepository.saveAll(employees);
+
+        for (int i = 1; i <= shiftCount; i++) {
+            Shift shift = new Shift();
+            LocalTime startTime = LocalTime.of(4 + (i % 14), (i % 4) * 15);
+            shift.setShiftNumber(String.valueOf(100 + i));
+            shift.setShiftType("Regular");
+            shift.setStartTime(startTime);
+            shift.setFinishTime(startTime.plusHours(8));
+            shift.calculateTotalTime();
+            shift.calculateHoursToPay();
+            shifts.add(shift);
+        }
+        shiftRepository.saveAll(shifts);
+
+        for (int i = 1; i <= vehicleCount; i++) {
+            Vehicle vehicle = new Vehicle();
+            vehicle.setVehicleName("Bus" + i);
+            vehicles.add(vehicle);
+        }
+        vehicleRepository.saveAll(vehicles);
+
+        LocalDate lastDay = LocalDate.now().withDayOfMonth(1).plusMonths(1).minusDays(1);
+        LocalDate firstDay = lastDay.plusDays(1).minusYears(years);
+        List<Assignment> chunk = new ArrayList<>(CHUNK_SIZE);
+        for (LocalDate day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+            for (Employee employee : employees) {
+                Assignment assignment = new Assignment();
+                assignment.setAssignmentDate(day);
+                assignment.setAssignmentType(ASSIGNMENT_TYPES[random.nextInt(ASSIGNMENT_TYPES.length)]);
+                assignment.setEmployee(employee);
+                assignment.setShift(randomShift());
+                assignment.setVehicle(randomVehicle());
+                chunk.add(assignment);
+                if (chunk.size() == CHUNK_SIZE) {
+                    assignmentRepository.saveAll(chunk);
+                    chunk.clear();
+                }
+            }
+        }
+        assignmentRepository.saveAll(chunk);
+    }
+
+    public Employee randomEmployee() {
+        return employees.get(random.nextInt(employees.size()));
+    }
+
+    public Shift randomShift() {
+        return shifts.get(random.nextInt(shifts.size()));
+    }
+
+    public Vehicle randomVehicle() {
+        return vehicles.get(random.nextInt(vehicles.size()));
+    }
+}
@@ -0,0 +1,54 @@
+package com.ttplan.util;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+
+/**
+ * Parses the date formats accepted for assignments: yyyy-MM-dd, dd/MM/yyyy and dd-MM-yyyy.
+ * The format is picked from the shape of the input (length and separator positions) and the digits
+ * are read in place, so a call allocates nothing but the result and never throws on bad input.
+ * Like the previous DateTimeFormatter-based parsing, a day past the end of the month (e.g. 31/04)
+ * is moved to the last day of that month; a day above 31 or a month above 12 is rejected.
+ */
+@Component
+public class AssignmentDateParser {
+    private static final int DATE_LENGTH = 10;
+
+    public LocalDate parse(String dateString) {
+        if (dateString == null || dateString.length() != DATE_LENGTH) {
+            return null;
+        }
+        char fifth = dateString.charAt(4);
+        char third = dateString.charAt(2);
+        if (fifth == '-' && dateString.charAt(7) == '-') {
+            return toDate(digits(dateString, 0, 4), digits(dateString, 5, 2), digits(dateString, 8, 2));
+        }
+        if ((third == '/' && dateString.charAt(5) == '/') || (third == '-' && dateString.charAt(5) == '-')) {
+            return toDate(digits(dateString, 6, 4), digits(dateString, 3, 2), digits(dateString, 0, 2));
+        }
+        return null;
+    }
+
+    private static int digits(String value, int start, int length) {
+        int result = 0;
+        for (int i = start; i < start + length; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    private static LocalDate toDate(int year, int month, int day) {
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return null;
+        }
+        int lengthOfMonth = Month.of(month).length(Year.isLeap(year));
+        return LocalDate.of(year, month, Math.min(day, lengthOfMonth));
+    }
+}
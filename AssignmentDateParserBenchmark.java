@@ -0,0 +1,51 @@
+package com.ttplan.benchmark;
+
+import com.ttplan.util.AssignmentDateParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssignmentDateParserBenchmark {
+
+    @Param({"2024-03-15", "15/03/2024", "15-03-2024", "not a date", "2024/15/03"})
+    private String input;
+
+    private final AssignmentDateParser parser = new AssignmentDateParser();
+
+    @Benchmark
+    public LocalDate shapeBasedParser() {
+        return parser.parse(input);
+    }
+
+    @Benchmark
+    public LocalDate formatterLoop() {
+        return parseWithFormatterLoop(input);
+    }
+
+    /**
+     * The implementation AssignmentServiceImpl.parseDate used before AssignmentDateParser, kept here as the baseline.
+     */
+    private static LocalDate parseWithFormatterLoop(String dateString) {
+        List<String> dateFormats = Arrays.asList("yyyy-MM-dd", "dd/MM/yyyy", "dd-MM-yyyy");
+
+        for (String format : dateFormats) {
+            try {
+                DateTimeFormatter formatter = DateTimeFormatter.ofPattern(format);
+                return LocalDate.parse(dateString, formatter);
+            } catch (DateTimeParseException e) {
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,76 @@
+package com.ttplan.util;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the parser gives the same result as the DateTimeFormatter loop it replaced, including
+ * where that loop moved a day past the end of the month back to the last day and where it rejected
+ * the input.
+ */
+class AssignmentDateParserTest {
+
+    private final AssignmentDateParser assignmentDateParser = new AssignmentDateParser();
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "2024-03-15", "15/03/2024", "15-03-2024",
+            "2024-02-29", "29/02/2024", "0001-01-01", "31/12/9999"
+    })
+    void parsesValidDatesLikeFormatterLoop(String dateString) {
+        assertSameAsFormatterLoop(dateString);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "31/04/2024", "2024-04-31", "31-06-2024",
+            "29/02/2023", "2023-02-30", "30/02/2024"
+    })
+    void clampsDayPastEndOfMonthLikeFormatterLoop(String dateString) {
+        assertSameAsFormatterLoop(dateString);
+    }
+
+    @ParameterizedTest
+    @NullAndEmptySource
+    @ValueSource(strings = {
+            "0000-01-01", "00/01/0000", "32/01/2024", "2024-01-32", "2024-13-01", "15/13/2024",
+            "2024-00-10", "00/03/2024", "2024-03-00", "not a date", "2024/03/15", "15.03.2024",
+            "2024-3-15", "15/3/2024", "2024-03-15x", " 2024-03-15", "+2024-03-15", "2024-03-1a",
+            "15/03-2024", "-001-03-15"
+    })
+    void rejectsMalformedDatesLikeFormatterLoop(String dateString) {
+        assertSameAsFormatterLoop(dateString);
+    }
+
+    private void assertSameAsFormatterLoop(String dateString) {
+        assertEquals(parseWithFormatterLoop(dateString), assignmentDateParser.parse(dateString), dateString);
+    }
+
+    /**
+     * The parsing the service did before {@link AssignmentDateParser}, kept as the reference.
+     */
+    private static LocalDate parseWithFormatterLoop(String dateString) {
+        if (dateString == null) {
+            return null;
+        }
+        List<String> dateFormats = Arrays.asList("yyyy-MM-dd", "dd/MM/yyyy", "dd-MM-yyyy");
+
+        for (String format : dateFormats) {
+            try {
+                DateTimeFormatter formatter = DateTimeFormatter.ofPattern(format);
+                return LocalDate.parse(dateString, formatter);
+            } catch (DateTimeParseException e) {
+            }
+        }
+        return null;
+    }
+}
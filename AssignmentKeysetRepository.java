@@ -0,0 +1,54 @@
+package com.ttplan.repository;
+
+import com.ttplan.model.Assignment;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Seek-based paging over assignments ordered by (assignment_date, assignment_id). Each page starts
+ * right after the last row of the previous one, so reading deep into history costs the same as the
+ * first page and no count query is issued.
+ */
+@Repository
+public class AssignmentKeysetRepository {
+    private final EntityManager entityManager;
+
+    public AssignmentKeysetRepository(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    public List<Assignment> findNext(Specification<Assignment> specification, LocalDate lastAssignmentDate, Long lastAssignmentId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Assignment> query = cb.createQuery(Assignment.class);
+        Root<Assignment> root = query.from(Assignment.class);
+
+        Specification<Assignment> keysetSpecification = specification;
+        if (lastAssignmentDate != null && lastAssignmentId != null) {
+            keysetSpecification = keysetSpecification.and(after(lastAssignmentDate, lastAssignmentId));
+        }
+        Predicate predicate = keysetSpecification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(root).orderBy(cb.asc(root.get("assignmentDate")), cb.asc(root.get("assignmentId")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private static Specification<Assignment> after(LocalDate lastAssignmentDate, Long lastAssignmentId) {
+        return (root, query, cb) -> cb.or(
+                cb.greaterThan(root.get("assignmentDate"), lastAssignmentDate),
+                cb.and(cb.equal(root.get("assignmentDate"), lastAssignmentDate),
+                        cb.greaterThan(root.get("assignmentId"), lastAssignmentId)));
+    }
+}
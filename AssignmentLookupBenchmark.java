@@ -0,0 +1,77 @@
+package com.ttplan.benchmark;
+
+import com.ttplan.model.Assignment;
+import com.ttplan.repository.AssignmentRepository;
+import com.ttplan.service.AssignmentService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shift-number and vehicle-name search on a million assignments, against the findAll-and-filter code
+ * the service used before. {@link SqlStatementCount} shows the statements per call, which exposes the
+ * per-row lazy loads of the old path. The old path runs in a transaction, as it did inside the service,
+ * so those lazy loads are measured instead of failing outside a session.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class AssignmentLookupBenchmark {
+
+    private AssignmentService assignmentService;
+    private AssignmentRepository assignmentRepository;
+    private TransactionTemplate transactionTemplate;
+    private String shiftNumber;
+    private String vehicleName;
+
+    @Setup(Level.Trial)
+    public void setUp(MillionAssignmentsData data) {
+        assignmentService = data.getBean(AssignmentService.class);
+        assignmentRepository = data.getBean(AssignmentRepository.class);
+        transactionTemplate = data.getBean(TransactionTemplate.class);
+        shiftNumber = data.generator.randomShift().getShiftNumber();
+        vehicleName = data.generator.randomVehicle().getVehicleName();
+    }
+
+    @Benchmark
+    public List<Assignment> shiftNumberIndexedQuery(SqlStatementCount statementCount) {
+        return assignmentService.getAssignmentsByShiftNumberIgnoreCase(shiftNumber);
+    }
+
+    @Benchmark
+    public List<Assignment> vehicleNameIndexedQuery(SqlStatementCount statementCount) {
+        return assignmentService.getAssignmentsByVehicleNameIgnoreCase(vehicleName);
+    }
+
+    @Benchmark
+    public List<Assignment> shiftNumberFindAllAndFilter(SqlStatementCount statementCount) {
+        return transactionTemplate.execute(status -> {
+            List<Assignment> filteredAssignments = new ArrayList<>();
+            for (Assignment assignment : assignmentRepository.findAll()) {
+                if (assignment.getShift().getShiftNumber().equalsIgnoreCase(shiftNumber)) {
+                    filteredAssignments.add(assignment);
+                }
+            }
+            return filteredAssignments;
+        });
+    }
+
+    @Benchmark
+    public List<Assignment> vehicleNameFindAllAndFilter(SqlStatementCount statementCount) {
+        return transactionTemplate.execute(status -> {
+            List<Assignment> filteredAssignments = new ArrayList<>();
+            for (Assignment assignment : assignmentRepository.findAll()) {
+                if (assignment.getVehicle().getVehicleName().equalsIgnoreCase(vehicleName)) {
+                    filteredAssignments.add(assignment);
+                }
+            }
+            return filteredAssignments;
+        });
+    }
+}
@@ -0,0 +1,62 @@
+package com.ttplan.benchmark;
+
+import com.ttplan.model.Assignment;
+import com.ttplan.service.AssignmentService;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AssignmentServiceBenchmark {
+
+    @Param({"MONTH", "MONTH_TYPE", "TYPE", "DATE", "EMPLOYEE", "SHIFT", "VEHICLE", "ALL"})
+    private String filterCombination;
+
+    private AssignmentService assignmentService;
+    private Map<String, Object> filters;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkData data) {
+        assignmentService = data.getBean(AssignmentService.class);
+        filters = buildFilters(data, LocalDate.now());
+    }
+
+    @Benchmark
+    public List<Assignment> getFilteredAssignments() {
+        return assignmentService.getFilteredAssignments(filters);
+    }
+
+    private Map<String, Object> buildFilters(BenchmarkData data, LocalDate today) {
+        Map<String, Object> result = new HashMap<>();
+        boolean all = "ALL".equals(filterCombination);
+        if (all || filterCombination.startsWith("MONTH")) {
+            result.put("selectedMonth", today.getMonthValue());
+            result.put("selectedYear", today.getYear());
+        }
+        if (all || filterCombination.endsWith("TYPE")) {
+            result.put("assignmentType", AssignmentDataGenerator.ASSIGNMENT_TYPES[0]);
+        }
+        if (all || "DATE".equals(filterCombination)) {
+            result.put("assignmentDate", today.withDayOfMonth(1));
+        }
+        if (all || "EMPLOYEE".equals(filterCombination)) {
+            result.put("employeeNameOrSurname", data.generator.randomEmployee().getEmployeeSurname());
+        }
+        if (all || "SHIFT".equals(filterCombination)) {
+            result.put("shiftNumber", data.generator.randomShift().getShiftNumber());
+        }
+        if (all || "VEHICLE".equals(filterCombination)) {
+            result.put("vehicleName", data.generator.randomVehicle().getVehicleName());
+        }
+        return result;
+    }
+}
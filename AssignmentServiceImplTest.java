@@ -0,0 +1,135 @@
+package com.ttplan.service.impl;
+
+import com.ttplan.metrics.SqlStatementCounter;
+import com.ttplan.model.Assignment;
+import com.ttplan.model.Employee;
+import com.ttplan.model.Shift;
+import com.ttplan.model.Vehicle;
+import com.ttplan.repository.AssignmentRepository;
+import com.ttplan.repository.EmployeeRepository;
+import com.ttplan.repository.ShiftRepository;
+import com.ttplan.repository.VehicleRepository;
+import com.ttplan.service.AssignmentService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that a filtered page costs a fixed number of statements however many employees, shifts and
+ * vehicles it shows. The test is deliberately not transactional: a lazy association that is not
+ * fetched with the page fails with LazyInitializationException instead of loading quietly.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:ttplan-test;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.ttplan.metrics.SqlStatementCounter"
+})
+class AssignmentServiceImplTest {
+    private static final int YEAR = 2024;
+    private static final int MONTH = 3;
+    private static final int PAGE_SIZE = 20;
+
+    @Autowired
+    private AssignmentService assignmentService;
+
+    @Autowired
+    private AssignmentRepository assignmentRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ShiftRepository shiftRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @BeforeEach
+    void setUp() {
+        List<Employee> employees = new ArrayList<>();
+        List<Shift> shifts = new ArrayList<>();
+        List<Vehicle> vehicles = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            Employee employee = new Employee();
+            employee.setEmployeeName("Name" + i);
+            employee.setEmployeeSurname("Surname" + i);
+            employees.add(employee);
+
+            Shift shift = new Shift();
+            shift.setShiftNumber(String.valueOf(100 + i));
+            shift.setShiftType("Regular");
+            shift.setStartTime(LocalTime.of(4 + i, 0));
+            shift.setFinishTime(LocalTime.of(12 + i, 0));
+            shift.calculateTotalTime();
+            shift.calculateHoursToPay();
+            shifts.add(shift);
+
+            Vehicle vehicle = new Vehicle();
+            vehicle.setVehicleName("Bus" + i);
+            vehicles.add(vehicle);
+        }
+        employeeRepository.saveAll(employees);
+        shiftRepository.saveAll(shifts);
+        vehicleRepository.saveAll(vehicles);
+
+        List<Assignment> assignments = new ArrayList<>();
+        for (int day = 1; day <= 6; day++) {
+            for (int i = 0; i < employees.size(); i++) {
+                Assignment assignment = new Assignment();
+                assignment.setAssignmentDate(LocalDate.of(YEAR, MONTH, day));
+                assignment.setAssignmentType("Work");
+                assignment.setEmployee(employees.get(i));
+                assignment.setShift(shifts.get((i + day) % shifts.size()));
+                // every tenth row has no vehicle and must still be listed
+                assignment.setVehicle(i == 0 ? null : vehicles.get((i * day) % vehicles.size()));
+                assignments.add(assignment);
+            }
+        }
+        assignmentRepository.saveAll(assignments);
+    }
+
+    @AfterEach
+    void tearDown() {
+        assignmentRepository.deleteAll();
+        employeeRepository.deleteAll();
+        shiftRepository.deleteAll();
+        vehicleRepository.deleteAll();
+    }
+
+    @Test
+    void filteredPageUsesOneSelectAndOneCount() {
+        Map<String, Object> filters = new HashMap<>();
+        filters.put("selectedMonth", MONTH);
+        filters.put("selectedYear", YEAR);
+
+        for (int pageNumber = 0; pageNumber < 3; pageNumber++) {
+            SqlStatementCounter.reset();
+            Page<Assignment> page = assignmentService.getFilteredAssignments(filters, PageRequest.of(pageNumber, PAGE_SIZE));
+            for (Assignment assignment : page) {
+                assignment.getEmployee().getEmployeeSurname();
+                assignment.getShift().getShiftNumber();
+                if (assignment.getVehicle() != null) {
+                    assignment.getVehicle().getVehicleName();
+                }
+            }
+
+            assertEquals(PAGE_SIZE, page.getNumberOfElements());
+            assertEquals(60, page.getTotalElements());
+            assertEquals(2, SqlStatementCounter.getCount(), "statements for page " + pageNumber);
+        }
+    }
+}
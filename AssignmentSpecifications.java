@@ -0,0 +1,125 @@
+package com.ttplan.repository;
+
+import com.ttplan.model.Assignment;
+import com.ttplan.model.Employee;
+import com.ttplan.model.Vehicle;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.Fetch;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Locale;
+import java.util.Map;
+
+public final class AssignmentSpecifications {
+
+    private AssignmentSpecifications() {
+    }
+
+    /**
+     * Fetches employee, shift and vehicle together with the assignment, so rendering a list does not
+     * trigger one select per row. Count queries issued for pagination are left without fetches.
+     */
+    public static Specification<Assignment> withAssociations() {
+        return (root, query, cb) -> {
+            if (!Long.class.equals(query.getResultType()) && !long.class.equals(query.getResultType())) {
+                root.fetch("employee", JoinType.LEFT);
+                root.fetch("shift", JoinType.LEFT);
+                root.fetch("vehicle", JoinType.LEFT);
+            }
+            return null;
+        };
+    }
+
+    public static Specification<Assignment> inMonth(int selectedMonth, int selectedYear) {
+        YearMonth yearMonth = YearMonth.of(selectedYear, selectedMonth);
+        return (root, query, cb) -> cb.between(root.get("assignmentDate"), yearMonth.atDay(1), yearMonth.atEndOfMonth());
+    }
+
+    public static Specification<Assignment> hasType(String assignmentType) {
+        return (root, query, cb) -> cb.equal(root.get("assignmentType"), assignmentType);
+    }
+
+    public static Specification<Assignment> hasDate(LocalDate assignmentDate) {
+        return (root, query, cb) -> cb.equal(root.get("assignmentDate"), assignmentDate);
+    }
+
+    public static Specification<Assignment> hasEmployee(Employee employee) {
+        return (root, query, cb) -> cb.equal(root.get("employee"), employee);
+    }
+
+    public static Specification<Assignment> hasVehicle(Vehicle vehicle) {
+        return (root, query, cb) -> cb.equal(root.get("vehicle"), vehicle);
+    }
+
+    public static Specification<Assignment> hasEmployeeNameOrSurnameIgnoreCase(String employeeNameOrSurname) {
+        String value = employeeNameOrSurname.toLowerCase(Locale.ROOT);
+        return (root, query, cb) -> cb.or(
+                cb.equal(cb.lower(join(root, "employee").get("employeeName")), value),
+                cb.equal(cb.lower(join(root, "employee").get("employeeSurname")), value));
+    }
+
+    public static Specification<Assignment> hasShiftNumberIgnoreCase(String shiftNumber) {
+        String value = shiftNumber.toLowerCase(Locale.ROOT);
+        return (root, query, cb) -> cb.equal(cb.lower(join(root, "shift").get("shiftNumber")), value);
+    }
+
+    public static Specification<Assignment> hasVehicleNameIgnoreCase(String vehicleName) {
+        String value = vehicleName.toLowerCase(Locale.ROOT);
+        return (root, query, cb) -> cb.equal(cb.lower(join(root, "vehicle").get("vehicleName")), value);
+    }
+
+    /**
+     * Builds a single specification from the filter map used by the assignment list view.
+     * Keys that are missing or empty are skipped, so an empty map matches every assignment.
+     */
+    public static Specification<Assignment> fromFilters(Map<String, Object> filters) {
+        Integer selectedMonth = (Integer) filters.get("selectedMonth");
+        Integer selectedYear = (Integer) filters.get("selectedYear");
+        String assignmentType = (String) filters.get("assignmentType");
+        LocalDate assignmentDate = (LocalDate) filters.get("assignmentDate");
+        String employeeNameOrSurname = (String) filters.get("employeeNameOrSurname");
+        String shiftNumber = (String) filters.get("shiftNumber");
+        String vehicleName = (String) filters.get("vehicleName");
+
+        Specification<Assignment> specification = Specification.where(withAssociations());
+
+        if (selectedMonth != null && selectedYear != null) {
+            specification = specification.and(inMonth(selectedMonth, selectedYear));
+        }
+        if (assignmentType != null && !assignmentType.isEmpty()) {
+            specification = specification.and(hasType(assignmentType));
+        }
+        if (assignmentDate != null) {
+            specification = specification.and(hasDate(assignmentDate));
+        }
+        if (employeeNameOrSurname != null && !employeeNameOrSurname.isEmpty()) {
+            specification = specification.and(hasEmployeeNameOrSurnameIgnoreCase(employeeNameOrSurname));
+        }
+        if (shiftNumber != null && !shiftNumber.isEmpty()) {
+            specification = specification.and(hasShiftNumberIgnoreCase(shiftNumber));
+        }
+        if (vehicleName != null && !vehicleName.isEmpty()) {
+            specification = specification.and(hasVehicleNameIgnoreCase(vehicleName));
+        }
+        return specification;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Join<Assignment, ?> join(From<Assignment, Assignment> root, String attribute) {
+        for (Fetch<Assignment, ?> fetch : root.getFetches()) {
+            if (fetch.getAttribute().getName().equals(attribute) && fetch instanceof Join) {
+                return (Join<Assignment, ?>) fetch;
+            }
+        }
+        for (Join<Assignment, ?> join : root.getJoins()) {
+            if (join.getAttribute().getName().equals(attribute)) {
+                return join;
+            }
+        }
+        return root.join(attribute, JoinType.LEFT);
+    }
+}
@@ -0,0 +1,43 @@
+package com.ttplan.event;
+
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Published after assignments are written. Row-level writes carry the changed cells so listeners can
+ * update only the affected employees; bulk writes (shift reassignment, imports, shift edits) only know
+ * the months and carry no changes, which listeners treat as "the whole month changed".
+ */
+public class AssignmentsChangedEvent {
+    private final Set<YearMonth> months;
+    private final List<AssignmentChange> changes;
+
+    public AssignmentsChangedEvent(Set<YearMonth> months) {
+        this.months = Collections.unmodifiableSet(months);
+        this.changes = Collections.emptyList();
+    }
+
+    public AssignmentsChangedEvent(List<AssignmentChange> changes) {
+        Set<YearMonth> changedMonths = new HashSet<>();
+        for (AssignmentChange change : changes) {
+            changedMonths.add(YearMonth.from(change.getAssignmentDate()));
+        }
+        this.months = Collections.unmodifiableSet(changedMonths);
+        this.changes = Collections.unmodifiableList(changes);
+    }
+
+    public Set<YearMonth> getMonths() {
+        return months;
+    }
+
+    public List<AssignmentChange> getChanges() {
+        return changes;
+    }
+
+    public boolean isMonthWide() {
+        return changes.isEmpty();
+    }
+}
@@ -1,26 +1,76 @@
 package com.ttplan.service.impl;
 
+import com.ttplan.event.AssignmentChange;
+import com.ttplan.event.AssignmentsChangedEvent;
+import com.ttplan.exception.AssignmentConflictException;
 import com.ttplan.model.Assignment;
+import com.ttplan.model.AssignmentConflict;
 import com.ttplan.model.Employee;
 import com.ttplan.model.Shift;
 import com.ttplan.model.Vehicle;
+import com.ttplan.repository.AssignmentBatchWriter;
+import com.ttplan.repository.AssignmentBookingRepository;
+import com.ttplan.repository.AssignmentKeysetRepository;
 import com.ttplan.repository.AssignmentRepository;
+import com.ttplan.repository.AssignmentSpecifications;
 import com.ttplan.service.AssignmentService;
+import com.ttplan.util.AssignmentDateParser;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
+import java.time.YearMonth;
 import java.util.*;
 
 @Service
 public class AssignmentServiceImpl implements AssignmentService {
+    private static final Logger log = LoggerFactory.getLogger(AssignmentServiceImpl.class);
+    private static final Sort ASSIGNMENT_ORDER = Sort.by("assignmentDate", "assignmentId");
+
     private final AssignmentRepository assignmentRepository;
+    private final AssignmentKeysetRepository assignmentKeysetRepository;
+    private final AssignmentDateParser assignmentDateParser;
+    private final AssignmentConflictChecker assignmentConflictChecker;
+    private final AssignmentBatchWriter assignmentBatchWriter;
+    private final AssignmentBookingRepository assignmentBookingRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DistributionSummary filteredRows;
+    private final Duration slowFilterThreshold;
 
     @Autowired
-    public AssignmentServiceImpl(AssignmentRepository assignmentRepository) {
+    public AssignmentServiceImpl(AssignmentRepository assignmentRepository,
+                                 AssignmentKeysetRepository assignmentKeysetRepository,
+                                 AssignmentDateParser assignmentDateParser,
+                                 AssignmentConflictChecker assignmentConflictChecker,
+                                 AssignmentBatchWriter assignmentBatchWriter,
+                                 AssignmentBookingRepository assignmentBookingRepository,
+                                 ApplicationEventPublisher eventPublisher,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${ttplan.metrics.slow-filter-threshold:PT0.5S}") Duration slowFilterThreshold) {
         this.assignmentRepository = assignmentRepository;
+        this.assignmentKeysetRepository = assignmentKeysetRepository;
+        this.assignmentDateParser = assignmentDateParser;
+        this.assignmentConflictChecker = assignmentConflictChecker;
+        this.assignmentBatchWriter = assignmentBatchWriter;
+        this.assignmentBookingRepository = assignmentBookingRepository;
+        this.eventPublisher = eventPublisher;
+        this.filteredRows = DistributionSummary.builder("ttplan.assignments.filtered.rows")
+                .description("Assignments returned by getFilteredAssignments")
+                .register(meterRegistry);
+        this.slowFilterThreshold = slowFilterThreshold;
     }
 
     @Override
@@ -29,8 +79,46 @@ public class AssignmentServiceImpl implements AssignmentService {
     }
 
     @Override
+    public Page<Assignment> getAllAssignments(Pageable pageable) {
+        return assignmentRepository.findAll(AssignmentSpecifications.withAssociations(), withDefaultOrder(pageable));
+    }
+
+    @Override
+    @Timed("ttplan.assignment.service")
+    @Transactional
     public Assignment saveAssignment(Assignment assignment) {
-        return assignmentRepository.save(assignment);
+        // read the stored version first: the conflict check's query may flush the caller's edits
+        List<AssignmentChange> changes = previousVersionOf(assignment);
+        rejectConflicts(assignment);
+        Assignment savedAssignment = assignmentRepository.save(assignment);
+        changes.add(new AssignmentChange(AssignmentChange.Kind.SAVED, savedAssignment));
+        eventPublisher.publishEvent(new AssignmentsChangedEvent(changes));
+        return savedAssignment;
+    }
+
+    /**
+     * Inserts new assignments with JDBC batch statements through {@link AssignmentBatchWriter}. The whole
+     * set is checked for double bookings first, under the same locks as single saves, and nothing is
+     * written if any row conflicts. One month-wide change event covers the inserted rows.
+     */
+    @Override
+    @Timed("ttplan.assignment.service")
+    @Transactional
+    public int saveAllAssignments(List<Assignment> assignments) {
+        List<AssignmentConflict> conflicts = new ArrayList<>();
+        for (List<AssignmentConflict> assignmentConflicts : assignmentConflictChecker.findConflicts(assignments)) {
+            conflicts.addAll(assignmentConflicts);
+        }
+        if (!conflicts.isEmpty()) {
+            throw new AssignmentConflictException(conflicts);
+        }
+        int savedCount = assignmentBatchWriter.insert(assignments);
+        Set<YearMonth> affectedMonths = new HashSet<>();
+        for (Assignment assignment : assignments) {
+            affectedMonths.add(YearMonth.from(assignment.getAssignmentDate()));
+        }
+        publishAssignmentsChanged(affectedMonths);
+        return savedCount;
     }
 
     @Override
@@ -39,13 +127,27 @@ public class AssignmentServiceImpl implements AssignmentService {
     }
 
     @Override
+    @Timed("ttplan.assignment.service")
+    @Transactional
     public Assignment updateAssignment(Assignment assignment) {
-        return assignmentRepository.save(assignment);
+        // read the stored version first: the conflict check's query may flush the caller's edits
+        List<AssignmentChange> changes = previousVersionOf(assignment);
+        rejectConflicts(assignment);
+        Assignment updatedAssignment = assignmentRepository.save(assignment);
+        changes.add(new AssignmentChange(AssignmentChange.Kind.SAVED, updatedAssignment));
+        eventPublisher.publishEvent(new AssignmentsChangedEvent(changes));
+        return updatedAssignment;
     }
 
     @Override
+    @Timed("ttplan.assignment.service")
     public void deleteAssignmentById(Long assignmentId) {
+        List<AssignmentChange> changes = new ArrayList<>();
+        assignmentBookingRepository.findStoredAsRemoval(assignmentId).ifPresent(changes::add);
         assignmentRepository.deleteById(assignmentId);
+        if (!changes.isEmpty()) {
+            eventPublisher.publishEvent(new AssignmentsChangedEvent(changes));
+        }
     }
 
     @Override
@@ -59,15 +161,17 @@ public class AssignmentServiceImpl implements AssignmentService {
     }
 
     @Override
+    @Timed("ttplan.assignment.service")
     public List<Assignment> getAssignmentsBySelectedMonth(int selectedMonth, int selectedYear) {
-        List<Assignment> assignments = assignmentRepository.findAll();
-        return filterAssignmentsBySelectedMonth(assignments, selectedMonth, selectedYear);
+        YearMonth yearMonth = YearMonth.of(selectedYear, selectedMonth);
+        return assignmentRepository.findAssignmentsByAssignmentDateBetween(yearMonth.atDay(1), yearMonth.atEndOfMonth());
     }
 
     @Override
+    @Timed("ttplan.assignment.service")
     public List<Assignment> getAssignmentsByTypeAndMonth(String assignmentType, int selectedMonth, int selectedYear) {
-        List<Assignment> assignmentsByType = assignmentRepository.findAssignmentByAssignmentType(assignmentType);
-        return filterAssignmentsBySelectedMonth(assignmentsByType, selectedMonth, selectedYear);
+        YearMonth yearMonth = YearMonth.of(selectedYear, selectedMonth);
+        return assignmentRepository.findAssignmentsByAssignmentTypeAndAssignmentDateBetween(assignmentType, yearMonth.atDay(1), yearMonth.atEndOfMonth());
     }
 
     @Override
@@ -95,91 +199,67 @@ public class AssignmentServiceImpl implements AssignmentService {
     }
 
     @Override
+    @Timed("ttplan.assignment.service")
     public List<Assignment> getAssignmentsByShiftNumberIgnoreCase(String shiftNumber) {
-        List<Assignment> assignments = assignmentRepository.findAll();
-        List<Assignment> filteredAssignments = new ArrayList<>();
-
-        for (Assignment assignment : assignments) {
-            if (assignment.getShift().getShiftNumber().equalsIgnoreCase(shiftNumber)) {
-                filteredAssignments.add(assignment);
-            }
-        }
-
-        return filteredAssignments;
+        return assignmentRepository.findAll(
+                AssignmentSpecifications.withAssociations().and(AssignmentSpecifications.hasShiftNumberIgnoreCase(shiftNumber)),
+                ASSIGNMENT_ORDER);
     }
 
     @Override
+    @Timed("ttplan.assignment.service")
     public List<Assignment> getAssignmentsByVehicleNameIgnoreCase(String vehicleName) {
-        List<Assignment> assignments = assignmentRepository.findAll();
-        List<Assignment> filteredAssignments = new ArrayList<>();
-
-        for (Assignment assignment : assignments) {
-            if (assignment.getVehicle().getVehicleName().equalsIgnoreCase(vehicleName)) {
-                filteredAssignments.add(assignment);
-            }
-        }
-
-        return filteredAssignments;
+        return assignmentRepository.findAll(
+                AssignmentSpecifications.withAssociations().and(AssignmentSpecifications.hasVehicleNameIgnoreCase(vehicleName)),
+                ASSIGNMENT_ORDER);
     }
 
     @Override
+    @Timed("ttplan.assignment.service")
     public List<Assignment> getFilteredAssignments(Map<String, Object> filters) {
-        List<Assignment> assignments = getAllAssignments();
-
-        Integer selectedMonth = (Integer) filters.get("selectedMonth");
-        Integer selectedYear = (Integer) filters.get("selectedYear");
-        String assignmentType = (String) filters.get("assignmentType");
-        LocalDate assignmentDate = (LocalDate) filters.get("assignmentDate");
-        String employeeNameOrSurname = (String) filters.get("employeeNameOrSurname");
-        String shiftNumber = (String) filters.get("shiftNumber");
-        String vehicleName = (String) filters.get("vehicleName");
-
-        if (selectedMonth != null && selectedYear != null) {
-            assignments = filterAssignmentsBySelectedMonth(assignments, selectedMonth, selectedYear);
-            if (assignmentType != null && !assignmentType.isEmpty()) {
-                assignments = getAssignmentsByTypeAndMonth(assignmentType, selectedMonth, selectedYear);
-            }
-        } else if (assignmentType != null && !assignmentType.isEmpty()) {
-            assignments = getAssignmentByType(assignmentType);
-        }
-
-        if (assignmentDate != null) {
-            List<Assignment> assignmentsByDate = getAssignmentByDate(assignmentDate);
-            assignments.retainAll(assignmentsByDate);
-        }
-
-        if (employeeNameOrSurname != null && !employeeNameOrSurname.isEmpty()) {
-            assignments.retainAll(getAssignmentsByEmployeeNameOrSurnameIgnoreCase(employeeNameOrSurname));
-        }
-
-        if (shiftNumber != null && !shiftNumber.isEmpty()) {
-            assignments.retainAll(getAssignmentsByShiftNumberIgnoreCase(shiftNumber));
-        }
-        if (vehicleName != null && !vehicleName.isEmpty()) {
-            assignments.retainAll(getAssignmentsByVehicleNameIgnoreCase(vehicleName));
-        }
+        long start = System.nanoTime();
+        List<Assignment> assignments = assignmentRepository.findAll(AssignmentSpecifications.fromFilters(filters), ASSIGNMENT_ORDER);
+        recordFilter(filters, assignments.size(), start);
+        return assignments;
+    }
 
-        Collections.sort(assignments, Comparator.comparing(Assignment::getAssignmentDate));
+    @Override
+    @Timed("ttplan.assignment.service")
+    public Page<Assignment> getFilteredAssignments(Map<String, Object> filters, Pageable pageable) {
+        long start = System.nanoTime();
+        Page<Assignment> assignments = assignmentRepository.findAll(AssignmentSpecifications.fromFilters(filters), withDefaultOrder(pageable));
+        recordFilter(filters, assignments.getNumberOfElements(), start);
         return assignments;
     }
 
+    @Override
+    @Timed("ttplan.assignment.service")
+    public List<Assignment> getFilteredAssignmentsAfter(Map<String, Object> filters, LocalDate lastAssignmentDate, Long lastAssignmentId, int limit) {
+        return assignmentKeysetRepository.findNext(AssignmentSpecifications.fromFilters(filters), lastAssignmentDate, lastAssignmentId, limit);
+    }
+
     @Override
     public List<Assignment> getAssignmentsByVehicle(Vehicle vehicle) {
         return assignmentRepository.findAssignmentsByVehicle(vehicle);
     }
 
     @Override
-    public LocalDate parseDate(String dateString) {
-        List<String> dateFormats = Arrays.asList("yyyy-MM-dd", "dd/MM/yyyy", "dd-MM-yyyy");
+    public Page<Assignment> getAssignmentsByVehicle(Vehicle vehicle, Pageable pageable) {
+        return assignmentRepository.findAll(
+                AssignmentSpecifications.withAssociations().and(AssignmentSpecifications.hasVehicle(vehicle)),
+                withDefaultOrder(pageable));
+    }
 
-        for (String format : dateFormats) {
-            try {
-                DateTimeFormatter formatter = DateTimeFormatter.ofPattern(format);
-                return LocalDate.parse(dateString, formatter);
-            } catch (DateTimeParseException e) {
-            }
-        }
-        return null;
+    @Override
+    public List<Assignment> getAssignmentsByVehicleAfter(Vehicle vehicle, LocalDate lastAssignmentDate, Long lastAssignmentId, int limit) {
+        return assignmentKeysetRepository.findNext(
+                AssignmentSpecifications.withAssociations().and(AssignmentSpecifications.hasVehicle(vehicle)),
+                lastAssignmentDate, lastAssignmentId, limit);
+    }
+
+    @Override
+    public LocalDate parseDate(String dateString) {
+        return assignmentDateParser.parse(dateString);
     }
 
     @Override
@@ -187,8 +267,77 @@ public class AssignmentServiceImpl implements AssignmentService {
         return assignmentRepository.findAssignmentsByEmployee(employee);
     }
 
+    @Override
+    public Page<Assignment> getAssignmentsByEmployee(Employee employee, Pageable pageable) {
+        return assignmentRepository.findAll(
+                AssignmentSpecifications.withAssociations().and(AssignmentSpecifications.hasEmployee(employee)),
+                withDefaultOrder(pageable));
+    }
+
+    @Override
+    public List<Assignment> getAssignmentsByEmployeeAfter(Employee employee, LocalDate lastAssignmentDate, Long lastAssignmentId, int limit) {
+        return assignmentKeysetRepository.findNext(
+                AssignmentSpecifications.withAssociations().and(AssignmentSpecifications.hasEmployee(employee)),
+                lastAssignmentDate, lastAssignmentId, limit);
+    }
+
     @Override
     public List<Assignment> getAssignmentsByShift(Shift shift) {
         return assignmentRepository.findAssignmentByShift(shift);
     }
-}
\ No newline at end of file
+
+    @Override
+    public Set<YearMonth> getAssignmentMonthsByShift(Shift shift) {
+        Set<YearMonth> months = new HashSet<>();
+        for (LocalDate assignmentDate : assignmentRepository.findDistinctAssignmentDatesByShift(shift)) {
+            months.add(YearMonth.from(assignmentDate));
+        }
+        return months;
+    }
+
+    @Override
+    @Timed("ttplan.assignment.service")
+    @Transactional
+    public int reassignShift(Shift fromShift, Shift toShift) {
+        Set<YearMonth> affectedMonths = getAssignmentMonthsByShift(fromShift);
+        int reassignedCount = assignmentRepository.reassignShift(fromShift, toShift);
+        publishAssignmentsChanged(affectedMonths);
+        return reassignedCount;
+    }
+
+    private void rejectConflicts(Assignment assignment) {
+        List<AssignmentConflict> conflicts = assignmentConflictChecker.findConflicts(assignment);
+        if (!conflicts.isEmpty()) {
+            throw new AssignmentConflictException(conflicts);
+        }
+    }
+
+    private void recordFilter(Map<String, Object> filters, int rowCount, long start) {
+        filteredRows.record(rowCount);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        if (elapsed.compareTo(slowFilterThreshold) > 0) {
+            log.warn("Slow assignment filter query: {} ms, {} rows, filters {}", elapsed.toMillis(), rowCount, filters);
+        }
+    }
+
+    private static Pageable withDefaultOrder(Pageable pageable) {
+        if (pageable.getSort().isSorted()) {
+            return pageable;
+        }
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), ASSIGNMENT_ORDER);
+    }
+
+    private List<AssignmentChange> previousVersionOf(Assignment assignment) {
+        List<AssignmentChange> changes = new ArrayList<>();
+        if (assignment.getAssignmentId() != null) {
+            assignmentBookingRepository.findStoredAsRemoval(assignment.getAssignmentId()).ifPresent(changes::add);
+        }
+        return changes;
+    }
+
+    private void publishAssignmentsChanged(Set<YearMonth> months) {
+        if (!months.isEmpty()) {
+            eventPublisher.publishEvent(new AssignmentsChangedEvent(months));
+        }
+    }
+}
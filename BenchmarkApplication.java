@@ -0,0 +1,30 @@
+package com.ttplan.benchmark;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Boots the service and repository layers without controllers or security, against the in-memory
+ * database configured by the benchmark properties. com.ttplan.config is not scanned, so the meter
+ * registry the services record into is declared here.
+ */
+@SpringBootApplication(scanBasePackages = {
+        "com.ttplan.service",
+        "com.ttplan.repository",
+        "com.ttplan.cache",
+        "com.ttplan.job",
+        "com.ttplan.util"
+})
+@EntityScan("com.ttplan.model")
+@EnableJpaRepositories("com.ttplan.repository")
+public class BenchmarkApplication {
+
+    @Bean
+    public MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+}
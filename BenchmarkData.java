@@ -0,0 +1,28 @@
+package com.ttplan.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Shared benchmark state: one application context and one generated data set per parameter
+ * combination, reused by every benchmark method in the trial.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkData extends GeneratedDataSet {
+
+    @Param({"100"})
+    public int employees;
+
+    @Param({"50"})
+    public int shifts;
+
+    @Param({"40"})
+    public int vehicles;
+
+    @Param({"2"})
+    public int years;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        start(employees, shifts, vehicles, years);
+    }
+}
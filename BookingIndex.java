@@ -0,0 +1,58 @@
+package com.ttplan.service.impl;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Booked intervals per resource (employee or vehicle) and start day, each with what booked it. Shifts
+ * are shorter than a day, so an interval can only overlap intervals starting on the same day or one day
+ * either side; all of those are compared.
+ */
+final class BookingIndex<T> {
+    private final Map<Long, Map<Long, List<Booked<T>>>> bookingsByResource = new HashMap<>();
+
+    void add(Long resourceId, ShiftInterval interval, T booking) {
+        if (resourceId != null) {
+            bookingsByResource.computeIfAbsent(resourceId, id -> new HashMap<>())
+                    .computeIfAbsent(interval.startDay(), day -> new ArrayList<>())
+                    .add(new Booked<>(interval, booking));
+        }
+    }
+
+    /**
+     * A booking of the resource that overlaps the interval or comes closer to it than the gap, or null.
+     */
+    T overlapping(Long resourceId, ShiftInterval interval, long gapMinutes) {
+        Map<Long, List<Booked<T>>> bookingsByDay = resourceId == null ? null : bookingsByResource.get(resourceId);
+        if (bookingsByDay == null) {
+            return null;
+        }
+        for (long day = interval.startDay() - 1; day <= interval.startDay() + 1; day++) {
+            for (Booked<T> booked : bookingsByDay.getOrDefault(day, Collections.emptyList())) {
+                if (booked.interval.overlaps(interval, gapMinutes)) {
+                    return booked.booking;
+                }
+            }
+        }
+        return null;
+    }
+
+    boolean hasBookingStartingOn(Long resourceId, LocalDate day) {
+        Map<Long, List<Booked<T>>> bookingsByDay = bookingsByResource.get(resourceId);
+        return bookingsByDay != null && bookingsByDay.containsKey(day.toEpochDay());
+    }
+
+    private static final class Booked<T> {
+        private final ShiftInterval interval;
+        private final T booking;
+
+        private Booked(ShiftInterval interval, T booking) {
+            this.interval = interval;
+            this.booking = booking;
+        }
+    }
+}
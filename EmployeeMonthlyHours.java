@@ -0,0 +1,44 @@
+package com.ttplan.model;
+
+public class EmployeeMonthlyHours {
+    private final Long employeeId;
+    private final String employeeName;
+    private final String employeeSurname;
+    private final String assignmentType;
+    private final long assignmentCount;
+    private final double hoursToPay;
+
+    public EmployeeMonthlyHours(Long employeeId, String employeeName, String employeeSurname, String assignmentType,
+                                long assignmentCount, double hoursToPay) {
+        this.employeeId = employeeId;
+        this.employeeName = employeeName;
+        this.employeeSurname = employeeSurname;
+        this.assignmentType = assignmentType;
+        this.assignmentCount = assignmentCount;
+        this.hoursToPay = hoursToPay;
+    }
+
+    public Long getEmployeeId() {
+        return employeeId;
+    }
+
+    public String getEmployeeName() {
+        return employeeName;
+    }
+
+    public String getEmployeeSurname() {
+        return employeeSurname;
+    }
+
+    public String getAssignmentType() {
+        return assignmentType;
+    }
+
+    public long getAssignmentCount() {
+        return assignmentCount;
+    }
+
+    public double getHoursToPay() {
+        return hoursToPay;
+    }
+}
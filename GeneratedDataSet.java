@@ -0,0 +1,49 @@
+package com.ttplan.benchmark;
+
+import com.ttplan.repository.AssignmentRepository;
+import com.ttplan.repository.EmployeeRepository;
+import com.ttplan.repository.ShiftRepository;
+import com.ttplan.repository.VehicleRepository;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Application context plus generated data set shared by the benchmark states. Subclasses declare the
+ * size parameters and call {@link #start} from their trial setup.
+ */
+public abstract class GeneratedDataSet {
+    public ConfigurableApplicationContext context;
+    public AssignmentDataGenerator generator;
+
+    protected void start(int employees, int shifts, int vehicles, int years) {
+        context = new SpringApplicationBuilder(BenchmarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:ttplan-benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.properties.hibernate.jdbc.batch_size=500",
+                        "spring.jpa.properties.hibernate.order_inserts=true",
+                        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.ttplan.metrics.SqlStatementCounter",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN")
+                .run();
+        generator = new AssignmentDataGenerator(
+                context.getBean(EmployeeRepository.class),
+                context.getBean(ShiftRepository.class),
+                context.getBean(VehicleRepository.class),
+                context.getBean(AssignmentRepository.class));
+        generator.generate(employees, shifts, vehicles, years);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+}
@@ -0,0 +1,53 @@
+package com.ttplan.config;
+
+import com.ttplan.cache.PlanBusCache;
+import com.ttplan.metrics.RequestMetricsInterceptor;
+import com.ttplan.metrics.SqlStatementCounter;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+    private final MeterRegistry meterRegistry;
+
+    public MetricsConfig(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Bean
+    public TimedAspect timedAspect() {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounterCustomizer() {
+        return properties -> properties.put("hibernate.session_factory.statement_inspector", SqlStatementCounter.class.getName());
+    }
+
+    @Bean
+    public MeterBinder planBusCacheMetrics(PlanBusCache planBusCache) {
+        return registry -> {
+            FunctionCounter.builder("ttplan.planbus.cache.requests", planBusCache, PlanBusCache::getHitCount)
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("ttplan.planbus.cache.requests", planBusCache, PlanBusCache::getMissCount)
+                    .tag("result", "miss")
+                    .register(registry);
+            Gauge.builder("ttplan.planbus.cache.size", planBusCache, PlanBusCache::getSize)
+                    .register(registry);
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RequestMetricsInterceptor(meterRegistry));
+    }
+}
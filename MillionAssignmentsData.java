@@ -0,0 +1,27 @@
+package com.ttplan.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * About 1.1 million assignments: 1000 employees with one assignment a day for three years.
+ */
+@State(Scope.Benchmark)
+public class MillionAssignmentsData extends GeneratedDataSet {
+
+    @Param({"1000"})
+    public int employees;
+
+    @Param({"50"})
+    public int shifts;
+
+    @Param({"40"})
+    public int vehicles;
+
+    @Param({"3"})
+    public int years;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        start(employees, shifts, vehicles, years);
+    }
+}
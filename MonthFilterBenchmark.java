@@ -0,0 +1,47 @@
+package com.ttplan.benchmark;
+
+import com.ttplan.model.Assignment;
+import com.ttplan.repository.AssignmentRepository;
+import com.ttplan.service.AssignmentService;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selecting one month of assignments: the date-range query against filtering the full assignment
+ * history in memory, which is what callers of filterAssignmentsBySelectedMonth hand it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MonthFilterBenchmark {
+
+    private AssignmentService assignmentService;
+    private List<Assignment> allAssignments;
+    private int selectedMonth;
+    private int selectedYear;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkData data) {
+        assignmentService = data.getBean(AssignmentService.class);
+        allAssignments = data.getBean(AssignmentRepository.class).findAll();
+        LocalDate today = LocalDate.now();
+        selectedMonth = today.getMonthValue();
+        selectedYear = today.getYear();
+    }
+
+    @Benchmark
+    public List<Assignment> getAssignmentsBySelectedMonth() {
+        return assignmentService.getAssignmentsBySelectedMonth(selectedMonth, selectedYear);
+    }
+
+    @Benchmark
+    public List<Assignment> filterAssignmentsBySelectedMonth() {
+        return assignmentService.filterAssignmentsBySelectedMonth(allAssignments, selectedMonth, selectedYear);
+    }
+}
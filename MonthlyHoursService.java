@@ -0,0 +1,10 @@
+package com.ttplan.service;
+
+import com.ttplan.model.EmployeeMonthlyHours;
+
+import java.time.YearMonth;
+import java.util.List;
+
+public interface MonthlyHoursService {
+    List<EmployeeMonthlyHours> getMonthlyHours(YearMonth month);
+}
@@ -0,0 +1,69 @@
+package com.ttplan.service.impl;
+
+import com.ttplan.event.AssignmentsChangedEvent;
+import com.ttplan.model.EmployeeMonthlyHours;
+import com.ttplan.service.MonthlyHoursService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.persistence.EntityManager;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hours to pay per employee and assignment type for a month. Each month is aggregated by one
+ * GROUP BY query over its date range and kept until an assignment in that month changes, so payroll
+ * reads hit memory and only the edited month is ever recomputed.
+ */
+@Service
+public class MonthlyHoursServiceImpl implements MonthlyHoursService {
+    private static final String MONTHLY_HOURS_QUERY =
+            "select e.employeeId, e.employeeName, e.employeeSurname, a.assignmentType, count(a), sum(s.hoursToPay) "
+                    + "from Assignment a join a.employee e join a.shift s "
+                    + "where a.assignmentDate between :firstDay and :lastDay "
+                    + "group by e.employeeId, e.employeeName, e.employeeSurname, a.assignmentType "
+                    + "order by e.employeeSurname, e.employeeName, a.assignmentType";
+
+    private final EntityManager entityManager;
+    private final Map<YearMonth, List<EmployeeMonthlyHours>> monthlyHours = new ConcurrentHashMap<>();
+
+    public MonthlyHoursServiceImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<EmployeeMonthlyHours> getMonthlyHours(YearMonth month) {
+        return monthlyHours.computeIfAbsent(month, this::aggregate);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAssignmentsChanged(AssignmentsChangedEvent event) {
+        event.getMonths().forEach(monthlyHours::remove);
+    }
+
+    private List<EmployeeMonthlyHours> aggregate(YearMonth month) {
+        List<Object[]> rows = entityManager.createQuery(MONTHLY_HOURS_QUERY, Object[].class)
+                .setParameter("firstDay", month.atDay(1))
+                .setParameter("lastDay", month.atEndOfMonth())
+                .getResultList();
+
+        List<EmployeeMonthlyHours> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Number hoursToPay = (Number) row[5];
+            result.add(new EmployeeMonthlyHours(
+                    (Long) row[0],
+                    (String) row[1],
+                    (String) row[2],
+                    (String) row[3],
+                    ((Number) row[4]).longValue(),
+                    hoursToPay == null ? 0 : hoursToPay.doubleValue()));
+        }
+        return Collections.unmodifiableList(result);
+    }
+}
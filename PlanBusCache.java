@@ -0,0 +1,339 @@
+package com.ttplan.cache;
+
+import com.ttplan.event.AssignmentsChangedEvent;
+import com.ttplan.model.Assignment;
+import com.ttplan.model.Employee;
+import com.ttplan.model.PlanBus;
+import com.ttplan.model.PlanBusChange;
+import com.ttplan.repository.AssignmentBookingRepository;
+import com.ttplan.service.EmployeeService;
+import com.ttplan.service.PlanBusService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Month-keyed cache of generated plans. Entries expire after a fixed time. Each month also keeps an
+ * index of per-employee plans, filled for every employee whenever the month plan is loaded, so a single
+ * employee's view is cut out of the month plan once per month instead of on every request or being
+ * rebuilt from the database. A committed row-level change rebuilds only the employee/day cells it
+ * touched, in the month plan and in the touched employees' plans; a month-wide change drops the month.
+ * Changes are applied from the rows {@link PlanBusChangeLog} recorded and numbered there only
+ * afterwards, so a reader that reads the month's sequence number before the plan never gets a plan
+ * older than that number. Every change bumps the month entry's version, and a plan is only stored if
+ * the version it was loaded under is still current, so a load that overlapped a committed change cannot
+ * put the old plan back into the cache.
+ */
+@Component
+public class PlanBusCache {
+    private final Map<YearMonth, MonthEntry> months = new ConcurrentHashMap<>();
+    private final Map<YearMonth, Object> monthLocks = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final PlanBusService planBusService;
+    private final EmployeeService employeeService;
+    private final PlanBusChangeLog planBusChangeLog;
+    private final AssignmentBookingRepository assignmentBookingRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maximumSize;
+    private final Duration timeToLive;
+
+    public PlanBusCache(PlanBusService planBusService, EmployeeService employeeService, PlanBusChangeLog planBusChangeLog,
+                        AssignmentBookingRepository assignmentBookingRepository, PlatformTransactionManager transactionManager,
+                        @Value("${ttplan.plan-bus-cache.maximum-size:24}") int maximumSize,
+                        @Value("${ttplan.plan-bus-cache.time-to-live:PT30M}") Duration timeToLive) {
+        this.planBusService = planBusService;
+        this.employeeService = employeeService;
+        this.planBusChangeLog = planBusChangeLog;
+        this.assignmentBookingRepository = assignmentBookingRepository;
+        // changes are applied after the writing transaction committed, so cells are read in a new one
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+        this.maximumSize = maximumSize;
+        this.timeToLive = timeToLive;
+    }
+
+    public PlanBus getPlanBus(YearMonth month, Supplier<PlanBus> loader) {
+        MonthEntry entry = entryFor(month);
+        PlanBus planBus = entry.planBus;
+        if (planBus != null) {
+            hits.incrementAndGet();
+            return planBus;
+        }
+        misses.incrementAndGet();
+        return load(entry, loader);
+    }
+
+    /**
+     * Returns the employee's plan for the month. On a miss it is cut out of the month plan, which is read
+     * through this cache with {@code monthLoader}, so neither lookup goes back to the database while the
+     * month is cached.
+     */
+    public PlanBus getEmployeePlan(YearMonth month, Long employeeId, String employeeSurname, Supplier<PlanBus> monthLoader) {
+        return lookup(month, entry -> entry.plansByEmployeeId, employeeId, employeeSurname, monthLoader);
+    }
+
+    public PlanBus getEmployeePlanBySurname(YearMonth month, String employeeSurname, Supplier<PlanBus> monthLoader) {
+        return lookup(month, entry -> entry.plansBySurname, employeeSurname.toLowerCase(Locale.ROOT), employeeSurname, monthLoader);
+    }
+
+    /**
+     * Loads the month plan even if one is cached, for example right after generating it, and caches the
+     * result unless the month changed while it was loading.
+     */
+    public PlanBus reload(YearMonth month, Supplier<PlanBus> loader) {
+        return load(entryFor(month), loader);
+    }
+
+    public void invalidate(YearMonth month) {
+        months.remove(month);
+    }
+
+    public void invalidateAll() {
+        months.clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAssignmentsChanged(AssignmentsChangedEvent event) {
+        event.getMonths().forEach(this::applyRecordedChanges);
+    }
+
+    /**
+     * Numbers changes that were committed before a restart but never applied; the cache is still empty,
+     * so there is nothing to patch.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void applyChangesRecordedBeforeStart() {
+        planBusChangeLog.findMonthsWithUnnumberedChanges().forEach(this::applyRecordedChanges);
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public int getSize() {
+        return months.size();
+    }
+
+    /**
+     * Applies the month's committed but unnumbered changes, then numbers them. Runs under the month's lock,
+     * so it also picks up changes of transactions that committed earlier but whose listener has not run
+     * yet; that listener then finds nothing left to do.
+     */
+    private void applyRecordedChanges(YearMonth month) {
+        synchronized (monthLocks.computeIfAbsent(month, key -> new Object())) {
+            List<PlanBusChange> changes = planBusChangeLog.findUnnumbered(month);
+            if (changes.isEmpty()) {
+                return;
+            }
+            MonthEntry entry = months.get(month);
+            if (entry != null) {
+                if (changes.stream().anyMatch(PlanBusChange::isMonthWide)) {
+                    entry.invalidate();
+                    months.remove(month, entry);
+                } else {
+                    patch(entry, changes);
+                }
+            }
+            planBusChangeLog.number(month, changes);
+        }
+    }
+
+    private void patch(MonthEntry entry, List<PlanBusChange> changes) {
+        Map<Long, String> surnamesByEmployeeId = new LinkedHashMap<>();
+        TreeSet<LocalDate> days = new TreeSet<>();
+        Map<Long, Map<LocalDate, List<Assignment>>> cells = new LinkedHashMap<>();
+        for (PlanBusChange change : changes) {
+            if (change.getEmployeeId() != null) {
+                surnamesByEmployeeId.put(change.getEmployeeId(), change.getEmployeeSurname());
+                days.add(change.getAssignmentDate());
+                cells.computeIfAbsent(change.getEmployeeId(), id -> new LinkedHashMap<>())
+                        .put(change.getAssignmentDate(), new ArrayList<>());
+            }
+        }
+        if (cells.isEmpty()) {
+            return;
+        }
+        // the cells as committed: one read for all touched employees, sorted into the touched days
+        List<Assignment> assignments = transactionTemplate.execute(status -> assignmentBookingRepository.findForResourcesBetween(
+                days.first(), days.last(), surnamesByEmployeeId.keySet(), Collections.emptyList()));
+        for (Assignment assignment : assignments) {
+            Map<LocalDate, List<Assignment>> employeeCells = cells.get(assignment.getEmployee().getEmployeeId());
+            List<Assignment> cell = employeeCells == null ? null : employeeCells.get(assignment.getAssignmentDate());
+            if (cell != null) {
+                cell.add(assignment);
+            }
+        }
+        entry.patch(cells, surnamesByEmployeeId, planBusService);
+    }
+
+    private PlanBus load(MonthEntry entry, Supplier<PlanBus> loader) {
+        long version = entry.getVersion();
+        PlanBus planBus = loader.get();
+        if (planBus != null) {
+            Map<Long, PlanBus> plansByEmployeeId = new HashMap<>();
+            Map<String, PlanBus> plansBySurname = new HashMap<>();
+            for (Employee employee : employeeService.getAllEmployees()) {
+                String employeeSurname = employee.getEmployeeSurname();
+                if (employeeSurname == null) {
+                    continue;
+                }
+                // employees sharing a surname get the same plan, so it is cut out once
+                PlanBus employeePlan = plansBySurname.computeIfAbsent(employeeSurname.toLowerCase(Locale.ROOT),
+                        key -> planBusService.getEmployeePlanForSurname(planBus, employeeSurname));
+                if (employeePlan != null) {
+                    plansByEmployeeId.put(employee.getEmployeeId(), employeePlan);
+                }
+            }
+            entry.storePlanBus(version, planBus, plansByEmployeeId, plansBySurname);
+        }
+        return planBus;
+    }
+
+    private <K> PlanBus lookup(YearMonth month, Function<MonthEntry, Map<K, PlanBus>> indexOf, K key, String employeeSurname,
+                               Supplier<PlanBus> monthLoader) {
+        MonthEntry entry = entryFor(month);
+        PlanBus planBus = indexOf.apply(entry).get(key);
+        if (planBus != null) {
+            hits.incrementAndGet();
+            return planBus;
+        }
+        misses.incrementAndGet();
+        long version = entry.getVersion();
+        PlanBus monthPlan = getPlanBus(month, monthLoader);
+        if (monthPlan == null) {
+            return null;
+        }
+        // loading the month plan fills the index, so only employees added since then are cut out here
+        planBus = indexOf.apply(entry).get(key);
+        if (planBus != null) {
+            return planBus;
+        }
+        planBus = planBusService.getEmployeePlanForSurname(monthPlan, employeeSurname);
+        if (planBus != null) {
+            entry.storeEmployeePlan(version, indexOf.apply(entry), key, planBus);
+        }
+        return planBus;
+    }
+
+    private MonthEntry entryFor(YearMonth month) {
+        MonthEntry entry = months.compute(month, (key, existing) ->
+                existing == null || existing.isExpired(timeToLive) ? new MonthEntry() : existing);
+        evictOverflow();
+        return entry;
+    }
+
+    private void evictOverflow() {
+        while (months.size() > maximumSize) {
+            months.entrySet().stream()
+                    .min(Comparator.comparingLong(entry -> entry.getValue().createdAt))
+                    .ifPresent(oldest -> months.remove(oldest.getKey(), oldest.getValue()));
+        }
+    }
+
+    /**
+     * Plans of one month. Reads are lock-free; changes and stores synchronize on the entry so a store can
+     * compare the version it loaded under with the current one. A month-wide change removes the entry
+     * from the cache instead, which leaves loads still holding it writing to an orphan.
+     */
+    private static final class MonthEntry {
+        private final long createdAt = System.nanoTime();
+        private final Map<Long, PlanBus> plansByEmployeeId = new ConcurrentHashMap<>();
+        private final Map<String, PlanBus> plansBySurname = new ConcurrentHashMap<>();
+        private volatile PlanBus planBus;
+        private long version;
+
+        private boolean isExpired(Duration timeToLive) {
+            return System.nanoTime() - createdAt > timeToLive.toNanos();
+        }
+
+        private synchronized long getVersion() {
+            return version;
+        }
+
+        private synchronized void invalidate() {
+            version++;
+            planBus = null;
+            plansByEmployeeId.clear();
+            plansBySurname.clear();
+        }
+
+        /**
+         * Replaces the given cells of the month plan with their committed assignments and cuts the touched
+         * employees' plans out of the result again. The cached plan is shared with readers, so the service
+         * returns a patched copy rather than changing it in place. Without a month plan the touched
+         * employees' plans are only dropped.
+         */
+        private synchronized void patch(Map<Long, Map<LocalDate, List<Assignment>>> cells, Map<Long, String> surnamesByEmployeeId,
+                                        PlanBusService planBusService) {
+            version++;
+            PlanBus patched = planBus;
+            if (patched != null) {
+                for (Map.Entry<Long, Map<LocalDate, List<Assignment>>> employeeCells : cells.entrySet()) {
+                    for (Map.Entry<LocalDate, List<Assignment>> cell : employeeCells.getValue().entrySet()) {
+                        patched = planBusService.withEmployeeDay(patched, employeeCells.getKey(), cell.getKey(), cell.getValue());
+                    }
+                }
+                planBus = patched;
+            }
+            for (Map.Entry<Long, String> employee : surnamesByEmployeeId.entrySet()) {
+                plansByEmployeeId.remove(employee.getKey());
+                if (employee.getValue() == null) {
+                    continue;
+                }
+                PlanBus previousPlan = plansBySurname.remove(employee.getValue().toLowerCase(Locale.ROOT));
+                PlanBus employeePlan = patched == null ? null : planBusService.getEmployeePlanForSurname(patched, employee.getValue());
+                // employees sharing the surname share the plan that was just replaced
+                if (previousPlan != null) {
+                    plansByEmployeeId.values().removeIf(plan -> plan == previousPlan);
+                }
+                if (employeePlan != null) {
+                    plansBySurname.put(employee.getValue().toLowerCase(Locale.ROOT), employeePlan);
+                    plansByEmployeeId.put(employee.getKey(), employeePlan);
+                }
+            }
+        }
+
+        private synchronized void storePlanBus(long loadedVersion, PlanBus loadedPlanBus,
+                                               Map<Long, PlanBus> employeePlansById, Map<String, PlanBus> employeePlansBySurname) {
+            if (version == loadedVersion) {
+                planBus = loadedPlanBus;
+                plansByEmployeeId.putAll(employeePlansById);
+                plansBySurname.putAll(employeePlansBySurname);
+            }
+        }
+
+        private synchronized <K> void storeEmployeePlan(long loadedVersion, Map<K, PlanBus> index, K key, PlanBus employeePlan) {
+            if (version == loadedVersion) {
+                index.put(key, employeePlan);
+            }
+        }
+    }
+}
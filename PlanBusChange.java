@@ -0,0 +1,174 @@
+package com.ttplan.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One recorded change to a month's plan: the assignment cell it touched, or the whole month for bulk
+ * writes. Rows are written in the transaction that changed the assignments and get their sequence number
+ * once the cached plan has been patched, so a numbered change is always already in the cached plan.
+ * Sequence numbers count up per month without gaps.
+ */
+@Entity
+@Table(name = "plan_bus_change", indexes = @Index(name = "idx_plan_bus_change_month_sequence", columnList = "plan_year, plan_month, sequence"))
+public class PlanBusChange {
+    public static final String SAVED = "SAVED";
+    public static final String REMOVED = "REMOVED";
+    public static final String MONTH = "MONTH";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "change_id")
+    private Long changeId;
+
+    @Column(name = "plan_year", nullable = false)
+    private int planYear;
+
+    @Column(name = "plan_month", nullable = false)
+    private int planMonth;
+
+    @Column(name = "sequence")
+    private Long sequence;
+
+    @Column(name = "change_kind", nullable = false, length = 10)
+    private String changeKind;
+
+    @Column(name = "assignment_id")
+    private Long assignmentId;
+
+    @Column(name = "assignment_date")
+    private LocalDate assignmentDate;
+
+    @Column(name = "employee_id")
+    private Long employeeId;
+
+    @Column(name = "employee_surname")
+    private String employeeSurname;
+
+    @Column(name = "assignment_type")
+    private String assignmentType;
+
+    @Column(name = "shift_number")
+    private String shiftNumber;
+
+    @Column(name = "vehicle_name")
+    private String vehicleName;
+
+    @Column(name = "recorded_at", nullable = false)
+    private LocalDateTime recordedAt;
+
+    public Long getChangeId() {
+        return changeId;
+    }
+
+    public void setChangeId(Long changeId) {
+        this.changeId = changeId;
+    }
+
+    public int getPlanYear() {
+        return planYear;
+    }
+
+    public void setPlanYear(int planYear) {
+        this.planYear = planYear;
+    }
+
+    public int getPlanMonth() {
+        return planMonth;
+    }
+
+    public void setPlanMonth(int planMonth) {
+        this.planMonth = planMonth;
+    }
+
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+
+    public String getChangeKind() {
+        return changeKind;
+    }
+
+    public void setChangeKind(String changeKind) {
+        this.changeKind = changeKind;
+    }
+
+    public boolean isMonthWide() {
+        return MONTH.equals(changeKind);
+    }
+
+    public Long getAssignmentId() {
+        return assignmentId;
+    }
+
+    public void setAssignmentId(Long assignmentId) {
+        this.assignmentId = assignmentId;
+    }
+
+    public LocalDate getAssignmentDate() {
+        return assignmentDate;
+    }
+
+    public void setAssignmentDate(LocalDate assignmentDate) {
+        this.assignmentDate = assignmentDate;
+    }
+
+    public Long getEmployeeId() {
+        return employeeId;
+    }
+
+    public void setEmployeeId(Long employeeId) {
+        this.employeeId = employeeId;
+    }
+
+    public String getEmployeeSurname() {
+        return employeeSurname;
+    }
+
+    public void setEmployeeSurname(String employeeSurname) {
+        this.employeeSurname = employeeSurname;
+    }
+
+    public String getAssignmentType() {
+        return assignmentType;
+    }
+
+    public void setAssignmentType(String assignmentType) {
+        this.assignmentType = assignmentType;
+    }
+
+    public String getShiftNumber() {
+        return shiftNumber;
+    }
+
+    public void setShiftNumber(String shiftNumber) {
+        this.shiftNumber = shiftNumber;
+    }
+
+    public String getVehicleName() {
+        return vehicleName;
+    }
+
+    public void setVehicleName(String vehicleName) {
+        this.vehicleName = vehicleName;
+    }
+
+    public LocalDateTime getRecordedAt() {
+        return recordedAt;
+    }
+
+    public void setRecordedAt(LocalDateTime recordedAt) {
+        this.recordedAt = recordedAt;
+    }
+}
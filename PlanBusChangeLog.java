@@ -0,0 +1,217 @@
+package com.ttplan.cache;
+
+import com.ttplan.event.AssignmentChange;
+import com.ttplan.event.AssignmentsChangedEvent;
+import com.ttplan.model.PlanBusChange;
+import com.ttplan.repository.PlanBusChangeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Plan changes per month, stored as {@link PlanBusChange} rows. A client holding a plan asks for the
+ * changes after the last sequence number it has seen and patches its copy, instead of reloading the
+ * whole month. Changes are recorded in the transaction that wrote the assignments, so they are committed
+ * or rolled back with them and survive a restart. They are numbered only after {@link PlanBusCache} has
+ * applied them, so a sequence number a reader can see is always already in the cached plan. The answer
+ * tells the client to reload when changes it has not seen were already trimmed (only the newest changes
+ * of each month are kept) or when a month-wide change happened.
+ */
+@Component
+public class PlanBusChangeLog {
+    private final PlanBusChangeRepository planBusChangeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<YearMonth, Long> currentSequences = new ConcurrentHashMap<>();
+    private final int maximumEntriesPerMonth;
+
+    public PlanBusChangeLog(PlanBusChangeRepository planBusChangeRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${ttplan.plan-bus-change-log.maximum-entries-per-month:1000}") int maximumEntriesPerMonth) {
+        this.planBusChangeRepository = planBusChangeRepository;
+        // numbering runs after the writing transaction committed, so it needs a transaction of its own
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maximumEntriesPerMonth = maximumEntriesPerMonth;
+    }
+
+    /**
+     * Stores the changes unnumbered, inside the transaction that published the event.
+     */
+    @EventListener
+    public void onAssignmentsChanged(AssignmentsChangedEvent event) {
+        List<PlanBusChange> recorded = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        if (event.isMonthWide()) {
+            for (YearMonth month : event.getMonths()) {
+                recorded.add(newChange(month, PlanBusChange.MONTH, now));
+            }
+        } else {
+            for (AssignmentChange change : event.getChanges()) {
+                PlanBusChange planBusChange = newChange(YearMonth.from(change.getAssignmentDate()), change.getKind().name(), now);
+                planBusChange.setAssignmentId(change.getAssignmentId());
+                planBusChange.setAssignmentDate(change.getAssignmentDate());
+                planBusChange.setEmployeeId(change.getEmployeeId());
+                planBusChange.setEmployeeSurname(change.getEmployeeSurname());
+                planBusChange.setAssignmentType(change.getAssignmentType());
+                planBusChange.setShiftNumber(change.getShiftNumber());
+                planBusChange.setVehicleName(change.getVehicleName());
+                recorded.add(planBusChange);
+            }
+        }
+        planBusChangeRepository.saveAll(recorded);
+    }
+
+    /**
+     * Committed changes of the month that have not been numbered yet, oldest first.
+     */
+    List<PlanBusChange> findUnnumbered(YearMonth month) {
+        return transactionTemplate.execute(status ->
+                planBusChangeRepository.findByPlanYearAndPlanMonthAndSequenceIsNullOrderByChangeId(month.getYear(), month.getMonthValue()));
+    }
+
+    List<YearMonth> findMonthsWithUnnumberedChanges() {
+        return transactionTemplate.execute(status -> {
+            List<YearMonth> result = new ArrayList<>();
+            for (PlanBusChange change : planBusChangeRepository.findBySequenceIsNullOrderByChangeId()) {
+                YearMonth month = YearMonth.of(change.getPlanYear(), change.getPlanMonth());
+                if (!result.contains(month)) {
+                    result.add(month);
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Numbers the changes in order after the month's current sequence and trims the oldest ones. Callers
+     * hold the month's lock in {@link PlanBusCache}, so numbers are handed out one month at a time.
+     */
+    void number(YearMonth month, List<PlanBusChange> changes) {
+        long currentSequence = transactionTemplate.execute(status -> {
+            long sequence = loadCurrentSequence(month);
+            for (PlanBusChange change : changes) {
+                planBusChangeRepository.setSequence(change.getChangeId(), ++sequence);
+            }
+            if (sequence > maximumEntriesPerMonth) {
+                planBusChangeRepository.deleteThroughSequence(month.getYear(), month.getMonthValue(), sequence - maximumEntriesPerMonth);
+            }
+            return sequence;
+        });
+        currentSequences.put(month, currentSequence);
+    }
+
+    public Changes getChangesSince(YearMonth month, long lastSeenSequence) {
+        return transactionTemplate.execute(status -> {
+            long currentSequence = getCurrentSequence(month);
+            Long oldestRetainedSequence = planBusChangeRepository.findMinSequence(month.getYear(), month.getMonthValue());
+            // a client ahead of the log holds a plan from before the database was reset
+            boolean reloadRequired = lastSeenSequence > currentSequence
+                    || (oldestRetainedSequence != null && lastSeenSequence < oldestRetainedSequence - 1);
+            List<Entry> result = new ArrayList<>();
+            for (PlanBusChange change : planBusChangeRepository.findByPlanYearAndPlanMonthAndSequenceGreaterThanOrderBySequence(
+                    month.getYear(), month.getMonthValue(), lastSeenSequence)) {
+                if (change.getSequence() > currentSequence) {
+                    break;
+                }
+                reloadRequired |= change.isMonthWide();
+                result.add(new Entry(change));
+            }
+            return new Changes(oldestRetainedSequence, currentSequence, reloadRequired,
+                    reloadRequired ? Collections.<Entry>emptyList() : result);
+        });
+    }
+
+    /**
+     * The newest sequence number of the month. Read it before reading the plan: every change up to it is
+     * already in the cached plan.
+     */
+    public long getCurrentSequence(YearMonth month) {
+        Long currentSequence = currentSequences.get(month);
+        if (currentSequence == null) {
+            currentSequence = transactionTemplate.execute(status -> loadCurrentSequence(month));
+            // numbering may have moved on while this was read; never go back behind it
+            currentSequence = currentSequences.merge(month, currentSequence, Math::max);
+        }
+        return currentSequence;
+    }
+
+    private long loadCurrentSequence(YearMonth month) {
+        Long maxSequence = planBusChangeRepository.findMaxSequence(month.getYear(), month.getMonthValue());
+        return maxSequence == null ? 0 : maxSequence;
+    }
+
+    private static PlanBusChange newChange(YearMonth month, String changeKind, LocalDateTime recordedAt) {
+        PlanBusChange change = new PlanBusChange();
+        change.setPlanYear(month.getYear());
+        change.setPlanMonth(month.getMonthValue());
+        change.setChangeKind(changeKind);
+        change.setRecordedAt(recordedAt);
+        return change;
+    }
+
+    public static class Changes {
+        private final Long oldestRetainedSequence;
+        private final long currentSequence;
+        private final boolean reloadRequired;
+        private final List<Entry> entries;
+
+        Changes(Long oldestRetainedSequence, long currentSequence, boolean reloadRequired, List<Entry> entries) {
+            this.oldestRetainedSequence = oldestRetainedSequence;
+            this.currentSequence = currentSequence;
+            this.reloadRequired = reloadRequired;
+            this.entries = entries;
+        }
+
+        public Long getOldestRetainedSequence() {
+            return oldestRetainedSequence;
+        }
+
+        public long getCurrentSequence() {
+            return currentSequence;
+        }
+
+        public boolean isReloadRequired() {
+            return reloadRequired;
+        }
+
+        public List<Entry> getEntries() {
+            return entries;
+        }
+    }
+
+    public static class Entry {
+        private final long sequence;
+        private final AssignmentChange change;
+
+        Entry(PlanBusChange planBusChange) {
+            this.sequence = planBusChange.getSequence();
+            this.change = planBusChange.isMonthWide() ? null : new AssignmentChange(
+                    AssignmentChange.Kind.valueOf(planBusChange.getChangeKind()), planBusChange.getAssignmentId(),
+                    planBusChange.getAssignmentDate(), planBusChange.getEmployeeId(), planBusChange.getEmployeeSurname(),
+                    planBusChange.getAssignmentType(), planBusChange.getShiftNumber(), planBusChange.getVehicleName());
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public AssignmentChange getChange() {
+            return change;
+        }
+
+        public boolean isMonthWide() {
+            return change == null;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.ttplan.repository;
+
+import com.ttplan.model.PlanBusChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface PlanBusChangeRepository extends JpaRepository<PlanBusChange, Long> {
+
+    List<PlanBusChange> findByPlanYearAndPlanMonthAndSequenceGreaterThanOrderBySequence(int planYear, int planMonth, long sequence);
+
+    List<PlanBusChange> findByPlanYearAndPlanMonthAndSequenceIsNullOrderByChangeId(int planYear, int planMonth);
+
+    List<PlanBusChange> findBySequenceIsNullOrderByChangeId();
+
+    @Query("select max(c.sequence) from PlanBusChange c where c.planYear = :planYear and c.planMonth = :planMonth")
+    Long findMaxSequence(@Param("planYear") int planYear, @Param("planMonth") int planMonth);
+
+    @Query("select min(c.sequence) from PlanBusChange c where c.planYear = :planYear and c.planMonth = :planMonth")
+    Long findMinSequence(@Param("planYear") int planYear, @Param("planMonth") int planMonth);
+
+    @Modifying
+    @Query("update PlanBusChange c set c.sequence = :sequence where c.changeId = :changeId")
+    int setSequence(@Param("changeId") Long changeId, @Param("sequence") long sequence);
+
+    @Modifying
+    @Query("delete from PlanBusChange c where c.planYear = :planYear and c.planMonth = :planMonth and c.sequence <= :sequence")
+    int deleteThroughSequence(@Param("planYear") int planYear, @Param("planMonth") int planMonth, @Param("sequence") long sequence);
+}
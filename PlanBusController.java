@@ -1,13 +1,21 @@
 package com.ttplan.controller;
 
+import com.ttplan.cache.PlanBusCache;
+import com.ttplan.cache.PlanBusChangeLog;
+import com.ttplan.job.PlanBusGenerationJobs;
+import com.ttplan.job.PlanBusGenerationJobs.PlanBusGenerationJob;
 import com.ttplan.model.Employee;
 import com.ttplan.model.PlanBus;
 import com.ttplan.model.SecurityUser;
+import com.ttplan.push.PlanBusUpdateBroadcaster;
 import com.ttplan.service.AssignmentService;
 import com.ttplan.service.EmployeeService;
 import com.ttplan.service.PlanBusService;
 import com.ttplan.service.SecurityService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
@@ -15,21 +23,40 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import java.time.LocalDate;
+import javax.servlet.http.HttpSession;
+import java.io.Serializable;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 
 @Controller
 public class PlanBusController {
+    private static final String CURRENT_EMPLOYEE_ATTRIBUTE = PlanBusController.class.getName() + ".currentEmployee";
+
     private final PlanBusService planBusService;
     private final EmployeeService employeeService;
     private final SecurityService securityService;
+    private final PlanBusCache planBusCache;
+    private final PlanBusGenerationJobs planBusGenerationJobs;
+    private final PlanBusChangeLog planBusChangeLog;
+    private final PlanBusUpdateBroadcaster planBusUpdateBroadcaster;
 
     @Autowired
-    public PlanBusController(PlanBusService planBusService, EmployeeService employeeService, SecurityService securityService) {
+    public PlanBusController(PlanBusService planBusService, EmployeeService employeeService, SecurityService securityService,
+                             PlanBusCache planBusCache, PlanBusGenerationJobs planBusGenerationJobs, PlanBusChangeLog planBusChangeLog,
+                             PlanBusUpdateBroadcaster planBusUpdateBroadcaster) {
         this.planBusService = planBusService;
         this.employeeService = employeeService;
         this.securityService = securityService;
+        this.planBusCache = planBusCache;
+        this.planBusGenerationJobs = planBusGenerationJobs;
+        this.planBusChangeLog = planBusChangeLog;
+        this.planBusUpdateBroadcaster = planBusUpdateBroadcaster;
     }
 
     @Autowired
@@ -42,16 +69,83 @@ public class PlanBusController {
 
     @PostMapping("/admin/generatePlanBus")
     public String generatePlanBus(@RequestParam("selectedMonth") int selectedMonth,
-                                  @RequestParam("selectedYear") int selectedYear,
-                                  Model model,
-                                  RedirectAttributes redirectAttributes) {
-        PlanBus planBus = planBusService.generatePlanBusForMonth(selectedMonth, selectedYear);
-        if (planBus == null) {
-            redirectAttributes.addFlashAttribute("errorMessage", "Can not generate plan as there is no assignments for selected month!");
-            return "error/errorNoAssignmentsForMonth";
+                                  @RequestParam("selectedYear") int selectedYear) {
+        planBusGenerationJobs.submit(YearMonth.of(selectedYear, selectedMonth));
+        return "redirect:/admin/generatePlanBus/result?selectedMonth=" + selectedMonth + "&selectedYear=" + selectedYear;
+    }
+
+    @GetMapping("/admin/generatePlanBus/status")
+    @ResponseBody
+    public Map<String, Object> getPlanBusGenerationStatus(@RequestParam("selectedMonth") int selectedMonth,
+                                                          @RequestParam("selectedYear") int selectedYear) {
+        PlanBusGenerationJob job = planBusGenerationJobs.getJob(YearMonth.of(selectedYear, selectedMonth));
+        Map<String, Object> status = new LinkedHashMap<>();
+        if (job == null) {
+            status.put("status", "NOT_FOUND");
+            return status;
+        }
+        status.put("status", job.getStatus());
+        status.put("submittedAt", job.getSubmittedAt());
+        status.put("startedAt", job.getStartedAt());
+        status.put("finishedAt", job.getFinishedAt());
+        status.put("message", job.getMessage());
+        status.put("conflicts", job.getConflicts().size());
+        return status;
+    }
+
+    @GetMapping("/admin/generatePlanBus/result")
+    public String showGeneratedPlanBus(@RequestParam("selectedMonth") int selectedMonth,
+                                       @RequestParam("selectedYear") int selectedYear,
+                                       Model model,
+                                       RedirectAttributes redirectAttributes) {
+        YearMonth month = YearMonth.of(selectedYear, selectedMonth);
+        PlanBusGenerationJob job = planBusGenerationJobs.getJob(month);
+        if (job == null) {
+            return "redirect:/admin/generatePlanBus";
+        }
+        switch (job.getStatus()) {
+            case DONE:
+                // read through the cache: the plan may have been edited or evicted since the job finished
+                PlanBus planBus = planBusCache.getPlanBus(month, () -> planBusService.getPlanBusForMonth(selectedMonth, selectedYear));
+                if (planBus == null) {
+                    redirectAttributes.addFlashAttribute("errorMessage", "Can not generate plan as there is no assignments for selected month!");
+                    return "error/errorNoAssignmentsForMonth";
+                }
+                model.addAttribute("planBus", planBus);
+                return "planBus/PlanBus.html";
+            case NO_ASSIGNMENTS:
+                redirectAttributes.addFlashAttribute("errorMessage", job.getMessage());
+                return "error/errorNoAssignmentsForMonth";
+            case CONFLICTS:
+                model.addAttribute("errorMessage", job.getMessage());
+                model.addAttribute("conflicts", job.getConflicts());
+                return "error/errorAssignmentConflicts";
+            case FAILED:
+                return "error/error";
+            default:
+                model.addAttribute("generationJob", job);
+                model.addAttribute("selectedMonth", selectedMonth);
+                model.addAttribute("selectedYear", selectedYear);
+                return "planBus/generatePlanBus.html";
         }
-        model.addAttribute("planBus", planBus);
-        return "planBus/PlanBus.html";
+    }
+
+    @GetMapping("/admin/planBus/cacheStats")
+    @ResponseBody
+    public Map<String, Object> getPlanBusCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", planBusCache.getHitCount());
+        stats.put("misses", planBusCache.getMissCount());
+        stats.put("size", planBusCache.getSize());
+        return stats;
+    }
+
+    @GetMapping("/user/planBus/changes")
+    @ResponseBody
+    public PlanBusChangeLog.Changes getPlanBusChanges(@RequestParam("month") int month,
+                                                      @RequestParam("year") int year,
+                                                      @RequestParam(value = "since", defaultValue = "0") long since) {
+        return planBusChangeLog.getChangesSince(YearMonth.of(year, month), since);
     }
 
     @GetMapping("/user/planBus")
@@ -59,13 +153,17 @@ public class PlanBusController {
                               @RequestParam(value = "year", required = false) Integer year,
                               Model model) {
         if (month == null || year == null) {
-
-            PlanBus currentPlanBus = planBusService.getCurrentPlanBus();
+            YearMonth currentMonth = YearMonth.now();
+            // the sequence is read before the plan, which already contains every change up to it
+            model.addAttribute("planBusSequence", planBusChangeLog.getCurrentSequence(currentMonth));
+            PlanBus currentPlanBus = planBusCache.getPlanBus(currentMonth, monthPlanLoader(currentMonth));
             model.addAttribute("planBus", currentPlanBus);
             return "planBus/planBus.html";
         }
 
-        PlanBus planBus = planBusService.getPlanBusForMonth(month, year);
+        YearMonth selectedMonth = YearMonth.of(year, month);
+        model.addAttribute("planBusSequence", planBusChangeLog.getCurrentSequence(selectedMonth));
+        PlanBus planBus = planBusCache.getPlanBus(selectedMonth, monthPlanLoader(selectedMonth));
         if (planBus != null) {
             model.addAttribute("planBus", planBus);
             return "planBus/planBus.html";
@@ -82,7 +180,8 @@ public class PlanBusController {
                                    Model model,
                                    RedirectAttributes redirectAttributes) {
         if (month != null && year != null) {
-            PlanBus employeePlan = planBusService.getEmployeePlanForMonthAndSurname(month, year, employeeSurname);
+            YearMonth selectedMonth = YearMonth.of(year, month);
+            PlanBus employeePlan = planBusCache.getEmployeePlanBySurname(selectedMonth, employeeSurname, monthPlanLoader(selectedMonth));
             if (employeePlan == null) {
                 redirectAttributes.addFlashAttribute("errorMessage", "No plan available for the selected employee and month!");
                 return "error/errorNoPlanBus";
@@ -94,12 +193,13 @@ public class PlanBusController {
                 redirectAttributes.addFlashAttribute("errorMessage", "Employee surname cannot be empty!");
                 return "error/errorNoPlanBus";
             }
-            PlanBus currentPlanBus = planBusService.getCurrentPlanBus();
+            YearMonth currentMonth = YearMonth.now();
+            PlanBus currentPlanBus = planBusCache.getPlanBus(currentMonth, monthPlanLoader(currentMonth));
             if (currentPlanBus == null) {
                 redirectAttributes.addFlashAttribute("errorMessage", "No plan available!");
                 return "error/errorNoPlanBus";
             }
-            PlanBus employeePlan = planBusService.getEmployeePlanForSurname(currentPlanBus, employeeSurname);
+            PlanBus employeePlan = planBusCache.getEmployeePlanBySurname(currentMonth, employeeSurname, monthPlanLoader(currentMonth));
             if (employeePlan == null) {
                 redirectAttributes.addFlashAttribute("errorMessage", "No plan available for the selected employee!");
                 return "error/errorNoPlanBus";
@@ -112,19 +212,19 @@ public class PlanBusController {
     @GetMapping("/user/userPlanBus")
     public String getUserPlanBus(@RequestParam(value = "month", required = false) Integer month,
                                  @RequestParam(value = "year", required = false) Integer year,
+                                 HttpSession session,
                                  Model model,
                                  RedirectAttributes redirectAttributes) {
-
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        SecurityUser securityUser = securityService.getSecurityUserByUserName(username);
-        if (securityUser == null) {
+        CurrentEmployee currentEmployee = getCurrentEmployee(session);
+        if (currentEmployee == null) {
             return "error/errorNoUserFound";
         }
-        Employee currentEmployee = securityUser.getEmployee();
 
         if (month != null && year != null) {
-            PlanBus employeePlan = planBusService.getEmployeePlanForMonthYearNameAndSurname(month, year, currentEmployee.getEmployeeName(), currentEmployee.getEmployeeSurname());
+            YearMonth selectedMonth = YearMonth.of(year, month);
+            model.addAttribute("planBusSequence", planBusChangeLog.getCurrentSequence(selectedMonth));
+            PlanBus employeePlan = planBusCache.getEmployeePlan(selectedMonth, currentEmployee.getEmployeeId(),
+                    currentEmployee.getEmployeeSurname(), monthPlanLoader(selectedMonth));
             if (employeePlan == null) {
                 redirectAttributes.addFlashAttribute("errorMessage", "No plan available for the selected employee and month!");
                 return "error/errorNoPlanBus";
@@ -132,12 +232,10 @@ public class PlanBusController {
             model.addAttribute("planBus", employeePlan);
             return "planBus/employeePlan.html";
         } else {
-            PlanBus currentPlanBus = planBusService.getEmployeePlanForMonthYearNameAndSurname(
-                    LocalDate.now().getMonthValue(),
-                    LocalDate.now().getYear(),
-                    currentEmployee.getEmployeeName(),
-                    currentEmployee.getEmployeeSurname()
-            );
+            YearMonth currentMonth = YearMonth.now();
+            model.addAttribute("planBusSequence", planBusChangeLog.getCurrentSequence(currentMonth));
+            PlanBus currentPlanBus = planBusCache.getEmployeePlan(currentMonth, currentEmployee.getEmployeeId(),
+                    currentEmployee.getEmployeeSurname(), monthPlanLoader(currentMonth));
             if (currentPlanBus == null) {
                 redirectAttributes.addFlashAttribute("errorMessage", "No current plan available for the selected employee!");
                 return "error/errorNoPlanBus";
@@ -146,4 +244,65 @@ public class PlanBusController {
             return "planBus/employeePlan.html";
         }
     }
+
+    @GetMapping(value = "/user/userPlanBus/updates", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> getUserPlanBusUpdates(HttpSession session) {
+        CurrentEmployee currentEmployee = getCurrentEmployee(session);
+        if (currentEmployee == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        return ResponseEntity.ok(planBusUpdateBroadcaster.subscribe(currentEmployee.getEmployeeId()));
+    }
+
+    /**
+     * Loads a month plan for the cache. The "current" plan is the plan of the calendar month, loaded by that
+     * month rather than through {@code getCurrentPlanBus()}, so the month it is cached under is the month it
+     * covers by construction.
+     */
+    private Supplier<PlanBus> monthPlanLoader(YearMonth month) {
+        return () -> planBusService.getPlanBusForMonth(month.getMonthValue(), month.getYear());
+    }
+
+    /**
+     * Resolves the signed-in user's employee once per session instead of on every plan request. Only the
+     * id and surname are kept in the session, not the entity.
+     */
+    private CurrentEmployee getCurrentEmployee(HttpSession session) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String username = authentication.getName();
+        CurrentEmployee cachedEmployee = (CurrentEmployee) session.getAttribute(CURRENT_EMPLOYEE_ATTRIBUTE);
+        if (cachedEmployee != null && username.equals(cachedEmployee.userName)) {
+            return cachedEmployee;
+        }
+        SecurityUser securityUser = securityService.getSecurityUserByUserName(username);
+        if (securityUser == null || securityUser.getEmployee() == null) {
+            return null;
+        }
+        Employee employee = securityUser.getEmployee();
+        CurrentEmployee currentEmployee = new CurrentEmployee(username, employee.getEmployeeId(), employee.getEmployeeSurname());
+        session.setAttribute(CURRENT_EMPLOYEE_ATTRIBUTE, currentEmployee);
+        return currentEmployee;
+    }
+
+    private static final class CurrentEmployee implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String userName;
+        private final Long employeeId;
+        private final String employeeSurname;
+
+        private CurrentEmployee(String userName, Long employeeId, String employeeSurname) {
+            this.userName = userName;
+            this.employeeId = employeeId;
+            this.employeeSurname = employeeSurname;
+        }
+
+        private Long getEmployeeId() {
+            return employeeId;
+        }
+
+        private String getEmployeeSurname() {
+            return employeeSurname;
+        }
+    }
 }
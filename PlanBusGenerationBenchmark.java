@@ -0,0 +1,37 @@
+package com.ttplan.benchmark;
+
+import com.ttplan.model.PlanBus;
+import com.ttplan.service.PlanBusService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PlanBusGenerationBenchmark {
+
+    private PlanBusService planBusService;
+    private TransactionTemplate transactionTemplate;
+    private int selectedMonth;
+    private int selectedYear;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkData data) {
+        planBusService = data.getBean(PlanBusService.class);
+        transactionTemplate = data.getBean(TransactionTemplate.class);
+        LocalDate today = LocalDate.now();
+        selectedMonth = today.getMonthValue();
+        selectedYear = today.getYear();
+    }
+
+    @Benchmark
+    public PlanBus generatePlanBusForMonth() {
+        return transactionTemplate.execute(status -> planBusService.generatePlanBusForMonth(selectedMonth, selectedYear));
+    }
+}
@@ -0,0 +1,194 @@
+package com.ttplan.job;
+
+import com.ttplan.cache.PlanBusCache;
+import com.ttplan.model.AssignmentConflict;
+import com.ttplan.model.PlanBus;
+import com.ttplan.service.PlanBusService;
+import com.ttplan.service.impl.AssignmentConflictChecker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs plan generation off the request thread. There is at most one running job per month; a second
+ * request for a month that is already being generated gets the existing job back. A finished job only
+ * keeps its status; the generated plan goes to the {@link PlanBusCache}. Finished jobs are dropped once
+ * they are older than the retention period.
+ */
+@Component
+public class PlanBusGenerationJobs {
+    private final PlanBusService planBusService;
+    private final PlanBusCache planBusCache;
+    private final AssignmentConflictChecker assignmentConflictChecker;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration jobRetention;
+    private final ExecutorService executor;
+    private final Map<YearMonth, PlanBusGenerationJob> jobs = new ConcurrentHashMap<>();
+
+    public PlanBusGenerationJobs(PlanBusService planBusService,
+                                 PlanBusCache planBusCache,
+                                 AssignmentConflictChecker assignmentConflictChecker,
+                                 MeterRegistry meterRegistry,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${ttplan.plan-bus-generation.threads:0}") int threads,
+                                 @Value("${ttplan.plan-bus-generation.job-retention:PT15M}") Duration jobRetention) {
+        this.planBusService = planBusService;
+        this.planBusCache = planBusCache;
+        this.assignmentConflictChecker = assignmentConflictChecker;
+        this.meterRegistry = meterRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobRetention = jobRetention;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "plan-bus-generation-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public PlanBusGenerationJob submit(YearMonth month) {
+        evictFinishedJobs();
+        return jobs.compute(month, (key, existing) -> {
+            if (existing != null && !existing.isFinished()) {
+                return existing;
+            }
+            PlanBusGenerationJob job = new PlanBusGenerationJob(month);
+            CompletableFuture.runAsync(() -> run(job), executor);
+            return job;
+        });
+    }
+
+    public PlanBusGenerationJob getJob(YearMonth month) {
+        evictFinishedJobs();
+        return jobs.get(month);
+    }
+
+    private void evictFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(jobRetention);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    private void run(PlanBusGenerationJob job) {
+        YearMonth month = job.getMonth();
+        job.start();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failed";
+        try {
+            // the pool thread has no session of its own, so lazy associations are only
+            // reachable inside this transaction
+            outcome = transactionTemplate.execute(status -> generate(job));
+        } catch (Throwable e) {
+            job.finish(JobStatus.FAILED, e.getMessage());
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+        } finally {
+            sample.stop(Timer.builder("ttplan.planbus.generation")
+                    .description("Time to generate the plan for one month")
+                    .tag("month", month.toString())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    private String generate(PlanBusGenerationJob job) {
+        YearMonth month = job.getMonth();
+        List<AssignmentConflict> conflicts = assignmentConflictChecker.findConflicts(month);
+        if (!conflicts.isEmpty()) {
+            job.conflicts = conflicts;
+            job.finish(JobStatus.CONFLICTS, "Can not generate plan as employees or vehicles are double-booked in selected month!");
+            return "conflicts";
+        }
+        PlanBus planBus = planBusCache.reload(month, () -> planBusService.generatePlanBusForMonth(month.getMonthValue(), month.getYear()));
+        if (planBus == null) {
+            job.finish(JobStatus.NO_ASSIGNMENTS, "Can not generate plan as there is no assignments for selected month!");
+            return "no_assignments";
+        }
+        job.finish(JobStatus.DONE, null);
+        return "done";
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public enum JobStatus {
+        QUEUED, RUNNING, DONE, NO_ASSIGNMENTS, CONFLICTS, FAILED
+    }
+
+    public static class PlanBusGenerationJob {
+        private final YearMonth month;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile String message;
+        private volatile List<AssignmentConflict> conflicts = Collections.emptyList();
+
+        PlanBusGenerationJob(YearMonth month) {
+            this.month = month;
+        }
+
+        void start() {
+            startedAt = LocalDateTime.now();
+            status = JobStatus.RUNNING;
+        }
+
+        void finish(JobStatus finalStatus, String finalMessage) {
+            message = finalMessage;
+            finishedAt = LocalDateTime.now();
+            status = finalStatus;
+        }
+
+        public boolean isFinished() {
+            return status != JobStatus.QUEUED && status != JobStatus.RUNNING;
+        }
+
+        public YearMonth getMonth() {
+            return month;
+        }
+
+        public JobStatus getStatus() {
+            return status;
+        }
+
+        public LocalDateTime getSubmittedAt() {
+            return submittedAt;
+        }
+
+        public LocalDateTime getStartedAt() {
+            return startedAt;
+        }
+
+        public LocalDateTime getFinishedAt() {
+            return finishedAt;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public List<AssignmentConflict> getConflicts() {
+            return conflicts;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.ttplan.push;
+
+import com.ttplan.event.AssignmentChange;
+import com.ttplan.event.AssignmentsChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Pushes committed changes to the current month's plan to the employees they concern, over
+ * server-sent events. A row-level change goes to the employee whose cell changed as an "assignment"
+ * event; a month-wide change (bulk reassignment, import) tells every connected employee to reload.
+ * Sends run on a separate executor so a slow client never holds up the thread that committed the change;
+ * with the default single thread, events reach each client in commit order.
+ */
+@Component
+public class PlanBusUpdateBroadcaster {
+    private final Map<Long, List<SseEmitter>> emittersByEmployeeId = new ConcurrentHashMap<>();
+    private final Duration timeout;
+    private final ExecutorService executor;
+
+    public PlanBusUpdateBroadcaster(@Value("${ttplan.plan-bus-updates.timeout:PT30M}") Duration timeout,
+                                    @Value("${ttplan.plan-bus-updates.threads:1}") int threads) {
+        this.timeout = timeout;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "plan-bus-updates-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public SseEmitter subscribe(Long employeeId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        List<SseEmitter> emitters = emittersByEmployeeId.computeIfAbsent(employeeId, key -> new CopyOnWriteArrayList<>());
+        emitters.add(emitter);
+        Runnable remove = () -> emitters.remove(emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(() -> {
+            remove.run();
+            emitter.complete();
+        });
+        emitter.onError(error -> remove.run());
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAssignmentsChanged(AssignmentsChangedEvent event) {
+        YearMonth currentMonth = YearMonth.now();
+        if (!event.getMonths().contains(currentMonth)) {
+            return;
+        }
+        if (event.isMonthWide()) {
+            for (Map.Entry<Long, List<SseEmitter>> entry : emittersByEmployeeId.entrySet()) {
+                send(entry.getValue(), () -> SseEmitter.event().name("reload").data(currentMonth.toString()));
+            }
+            return;
+        }
+        for (AssignmentChange change : event.getChanges()) {
+            if (change.getEmployeeId() == null || !YearMonth.from(change.getAssignmentDate()).equals(currentMonth)) {
+                continue;
+            }
+            List<SseEmitter> emitters = emittersByEmployeeId.get(change.getEmployeeId());
+            if (emitters != null) {
+                send(emitters, () -> SseEmitter.event().name("assignment").data(change));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * An event builder accumulates the serialized parts it is sent as and is not safe to share, so each
+     * emitter gets an event built for it.
+     */
+    private void send(List<SseEmitter> emitters, Supplier<SseEmitter.SseEventBuilder> event) {
+        executor.execute(() -> {
+            for (SseEmitter emitter : emitters) {
+                try {
+                    emitter.send(event.get());
+                } catch (IOException | IllegalStateException e) {
+                    emitters.remove(emitter);
+                    emitter.completeWithError(e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,153 @@
+package com.ttplan.cache;
+
+import com.ttplan.model.Description;
+import com.ttplan.model.Shift;
+import com.ttplan.model.Vehicle;
+import com.ttplan.service.DescriptionService;
+import com.ttplan.service.ShiftService;
+import com.ttplan.service.VehicleService;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache for shifts, descriptions and vehicles. These tables change rarely but are read
+ * on almost every admin page, so lists are loaded once and kept until a write evicts them or the
+ * time-to-live runs out. {@link ReferenceDataEvictionListener} evicts after every committed write.
+ * The cached entities are detached and shared between requests, so lists are loaded in their own
+ * transaction with the associations the views read (a shift's description) already initialized.
+ * Each eviction bumps the list's version, and a loaded list is only kept if the version it was loaded
+ * under is still current, so a load that read the table before a write cannot put the old rows back.
+ */
+@Component
+public class ReferenceDataCache {
+    private final ShiftService shiftService;
+    private final DescriptionService descriptionService;
+    private final VehicleService vehicleService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration timeToLive;
+
+    private final CachedList<Shift> shifts;
+    private final CachedList<Description> descriptions;
+    private final CachedList<Vehicle> vehicles;
+
+    public ReferenceDataCache(ShiftService shiftService,
+                              DescriptionService descriptionService,
+                              VehicleService vehicleService,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${ttplan.reference-data-cache.time-to-live:PT10M}") Duration timeToLive) {
+        this.shiftService = shiftService;
+        this.descriptionService = descriptionService;
+        this.vehicleService = vehicleService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.timeToLive = timeToLive;
+        this.shifts = new CachedList<>(this::loadShifts);
+        this.descriptions = new CachedList<>(() -> transactionTemplate.execute(status -> descriptionService.getAllDescriptions()));
+        this.vehicles = new CachedList<>(() -> transactionTemplate.execute(status -> vehicleService.getAllVehicles()));
+    }
+
+    public List<Shift> getAllShifts() {
+        return shifts.get(timeToLive);
+    }
+
+    public List<Description> getAllDescriptions() {
+        return descriptions.get(timeToLive);
+    }
+
+    public Description getDescriptionById(Long descriptionId) {
+        for (Description description : getAllDescriptions()) {
+            if (description.getDescriptionId().equals(descriptionId)) {
+                return description;
+            }
+        }
+        return descriptionService.getDescriptionById(descriptionId);
+    }
+
+    public List<Vehicle> getAllVehicles() {
+        return vehicles.get(timeToLive);
+    }
+
+    private List<Shift> loadShifts() {
+        return transactionTemplate.execute(status -> {
+            List<Shift> loadedShifts = shiftService.getAllShifts();
+            for (Shift shift : loadedShifts) {
+                Hibernate.initialize(shift.getDescription());
+            }
+            return loadedShifts;
+        });
+    }
+
+    public void evictShifts() {
+        shifts.evict();
+    }
+
+    public void evictDescriptions() {
+        descriptions.evict();
+        shifts.evict();
+    }
+
+    public void evictVehicles() {
+        vehicles.evict();
+    }
+
+    /**
+     * One cached list. Reads are lock-free; loads and evictions synchronize on the list so a load can
+     * compare the version it started under with the current one before storing its result.
+     */
+    private static final class CachedList<T> {
+        private final Supplier<List<T>> loader;
+        private volatile Loaded<T> loaded;
+        private long version;
+
+        private CachedList(Supplier<List<T>> loader) {
+            this.loader = loader;
+        }
+
+        private List<T> get(Duration timeToLive) {
+            Loaded<T> current = loaded;
+            if (current != null && !current.isExpired(timeToLive)) {
+                return current.values;
+            }
+            long loadedVersion = getVersion();
+            List<T> values = Collections.unmodifiableList(loader.get());
+            store(loadedVersion, new Loaded<>(values));
+            return values;
+        }
+
+        private synchronized long getVersion() {
+            return version;
+        }
+
+        private synchronized void store(long loadedVersion, Loaded<T> loadedValues) {
+            if (version == loadedVersion) {
+                loaded = loadedValues;
+            }
+        }
+
+        private synchronized void evict() {
+            version++;
+            loaded = null;
+        }
+    }
+
+    private static final class Loaded<T> {
+        private final List<T> values;
+        private final long loadedAt = System.nanoTime();
+
+        private Loaded(List<T> values) {
+            this.values = values;
+        }
+
+        private boolean isExpired(Duration timeToLive) {
+            return System.nanoTime() - loadedAt > timeToLive.toNanos();
+        }
+    }
+}
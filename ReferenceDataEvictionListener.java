@@ -0,0 +1,89 @@
+package com.ttplan.cache;
+
+import com.ttplan.model.Description;
+import com.ttplan.model.Shift;
+import com.ttplan.model.Vehicle;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Evicts {@link ReferenceDataCache} lists after a transaction that wrote a shift, description or vehicle
+ * commits, whichever service or controller did the write. JPQL bulk updates bypass these events and
+ * must still evict by hand.
+ */
+@Component
+public class ReferenceDataEvictionListener implements PostCommitInsertEventListener,
+        PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+    private final transient ReferenceDataCache referenceDataCache;
+    private final transient EntityManagerFactory entityManagerFactory;
+
+    public ReferenceDataEvictionListener(ReferenceDataCache referenceDataCache, EntityManagerFactory entityManagerFactory) {
+        this.referenceDataCache = referenceDataCache;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        evict(event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        evict(event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        evict(event.getEntity());
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        Class<?> entityClass = persister.getMappedClass();
+        return entityClass == Shift.class || entityClass == Description.class || entityClass == Vehicle.class;
+    }
+
+    private void evict(Object entity) {
+        if (entity instanceof Shift) {
+            referenceDataCache.evictShifts();
+        } else if (entity instanceof Description) {
+            referenceDataCache.evictDescriptions();
+        } else if (entity instanceof Vehicle) {
+            referenceDataCache.evictVehicles();
+        }
+    }
+}
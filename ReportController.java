@@ -0,0 +1,29 @@
+package com.ttplan.controller;
+
+import com.ttplan.model.EmployeeMonthlyHours;
+import com.ttplan.service.MonthlyHoursService;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.time.YearMonth;
+import java.util.List;
+
+@Controller
+@RequestMapping("/admin/reports")
+public class ReportController {
+    private final MonthlyHoursService monthlyHoursService;
+
+    public ReportController(MonthlyHoursService monthlyHoursService) {
+        this.monthlyHoursService = monthlyHoursService;
+    }
+
+    @GetMapping("/monthlyHours")
+    @ResponseBody
+    public List<EmployeeMonthlyHours> getMonthlyHours(@RequestParam("month") int month,
+                                                      @RequestParam("year") int year) {
+        return monthlyHoursService.getMonthlyHours(YearMonth.of(year, month));
+    }
+}
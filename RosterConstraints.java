@@ -0,0 +1,25 @@
+package com.ttplan.model;
+
+public class RosterConstraints {
+    private final int maxMonthlyHours;
+    private final int minRestHours;
+    private final int maxConsecutiveWorkDays;
+
+    public RosterConstraints(int maxMonthlyHours, int minRestHours, int maxConsecutiveWorkDays) {
+        this.maxMonthlyHours = maxMonthlyHours;
+        this.minRestHours = minRestHours;
+        this.maxConsecutiveWorkDays = maxConsecutiveWorkDays;
+    }
+
+    public int getMaxMonthlyHours() {
+        return maxMonthlyHours;
+    }
+
+    public int getMinRestHours() {
+        return minRestHours;
+    }
+
+    public int getMaxConsecutiveWorkDays() {
+        return maxConsecutiveWorkDays;
+    }
+}
@@ -0,0 +1,67 @@
+package com.ttplan.controller;
+
+import com.ttplan.exception.AssignmentConflictException;
+import com.ttplan.model.RosterConstraints;
+import com.ttplan.model.RosterResult;
+import com.ttplan.service.AssignmentService;
+import com.ttplan.service.impl.RosterGenerator;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Controller
+@RequestMapping("/admin/roster")
+public class RosterController {
+    private static final int MAX_REPORTED_UNFILLED_SHIFTS = 100;
+
+    private final RosterGenerator rosterGenerator;
+    private final AssignmentService assignmentService;
+
+    public RosterController(RosterGenerator rosterGenerator, AssignmentService assignmentService) {
+        this.rosterGenerator = rosterGenerator;
+        this.assignmentService = assignmentService;
+    }
+
+    @GetMapping("")
+    public String showRosterForm() {
+        return "roster/generateRoster";
+    }
+
+    @PostMapping("")
+    public String generateRoster(@RequestParam("selectedMonth") int selectedMonth,
+                                 @RequestParam("selectedYear") int selectedYear,
+                                 @RequestParam("assignmentType") String assignmentType,
+                                 @RequestParam(value = "maxMonthlyHours", defaultValue = "168") int maxMonthlyHours,
+                                 @RequestParam(value = "minRestHours", defaultValue = "11") int minRestHours,
+                                 @RequestParam(value = "maxConsecutiveWorkDays", defaultValue = "6") int maxConsecutiveWorkDays,
+                                 RedirectAttributes redirectAttributes) {
+        RosterConstraints constraints = new RosterConstraints(maxMonthlyHours, minRestHours, maxConsecutiveWorkDays);
+        RosterResult roster = rosterGenerator.generate(YearMonth.of(selectedYear, selectedMonth), assignmentType, constraints);
+        List<RosterResult.UnfilledShift> unfilledShifts = roster.getUnfilledShifts();
+        if (!unfilledShifts.isEmpty()) {
+            redirectAttributes.addFlashAttribute("unfilledShiftCount", unfilledShifts.size());
+            redirectAttributes.addFlashAttribute("unfilledShifts", unfilledShifts.stream()
+                    .limit(MAX_REPORTED_UNFILLED_SHIFTS)
+                    .map(RosterResult.UnfilledShift::toString)
+                    .collect(Collectors.toList()));
+        }
+        if (roster.getAssignments().isEmpty()) {
+            redirectAttributes.addFlashAttribute("errorMessage", "No shifts could be assigned for the selected month!");
+            return "redirect:/admin/roster";
+        }
+        try {
+            int savedCount = assignmentService.saveAllAssignments(roster.getAssignments());
+            redirectAttributes.addFlashAttribute("successMessage", savedCount + " assignments generated.");
+        } catch (AssignmentConflictException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "Assignments changed while the roster was generated, please generate it again!");
+        }
+        return "redirect:/admin/roster";
+    }
+}
@@ -0,0 +1,181 @@
+package com.ttplan.service.impl;
+
+import com.ttplan.cache.ReferenceDataCache;
+import com.ttplan.model.Assignment;
+import com.ttplan.model.Employee;
+import com.ttplan.model.RosterConstraints;
+import com.ttplan.model.RosterResult;
+import com.ttplan.model.RosterResult.Reason;
+import com.ttplan.model.RosterResult.UnfilledShift;
+import com.ttplan.model.Shift;
+import com.ttplan.model.Vehicle;
+import com.ttplan.repository.AssignmentBookingRepository;
+import com.ttplan.service.EmployeeService;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Fills a month with assignments for every shift that is not yet covered on a day. Days are filled in
+ * order and each shift goes to the eligible employee with the fewest hours so far, which spreads work
+ * evenly. An employee is eligible when the shift keeps them under the monthly hour limit, leaves the
+ * minimum rest to their shifts on the day before, the same day and the day after, and does not make a
+ * run of working days longer than allowed. Assignments already entered around the month are kept and
+ * count towards those limits; an existing assignment without working time (placeholder shift, leave,
+ * day off) makes the employee unavailable on that day. A shift is only assigned together with a free
+ * vehicle; shifts left without an employee or a vehicle are returned with the roster so they can be
+ * reported.
+ */
+@Component
+public class RosterGenerator {
+    private static final long PLACEHOLDER_SHIFT_ID = 1L;
+
+    private final AssignmentBookingRepository assignmentBookingRepository;
+    private final EmployeeService employeeService;
+    private final ReferenceDataCache referenceDataCache;
+
+    public RosterGenerator(AssignmentBookingRepository assignmentBookingRepository,
+                           EmployeeService employeeService,
+                           ReferenceDataCache referenceDataCache) {
+        this.assignmentBookingRepository = assignmentBookingRepository;
+        this.employeeService = employeeService;
+        this.referenceDataCache = referenceDataCache;
+    }
+
+    public RosterResult generate(YearMonth month, String assignmentType, RosterConstraints constraints) {
+        List<Shift> shifts = new ArrayList<>();
+        for (Shift shift : referenceDataCache.getAllShifts()) {
+            if (!shift.getShiftId().equals(PLACEHOLDER_SHIFT_ID) && ShiftInterval.durationMinutes(shift) > 0) {
+                shifts.add(shift);
+            }
+        }
+        shifts.sort(Comparator.comparing(Shift::getStartTime));
+
+        Map<Long, EmployeeState> employees = new LinkedHashMap<>();
+        for (Employee employee : employeeService.getAllEmployees()) {
+            employees.put(employee.getEmployeeId(), new EmployeeState(employee));
+        }
+        List<Vehicle> vehicles = referenceDataCache.getAllVehicles();
+        BookingIndex<Shift> employeeBookings = new BookingIndex<>();
+        BookingIndex<Shift> vehicleBookings = new BookingIndex<>();
+
+        // runs of working days may reach into the neighbouring months, so read as far as they can matter
+        int margin = Math.max(1, constraints.getMaxConsecutiveWorkDays());
+        Map<LocalDate, Set<Long>> coveredShifts = new HashMap<>();
+        for (Assignment assignment : assignmentBookingRepository.findBetween(month.atDay(1).minusDays(margin), month.atEndOfMonth().plusDays(margin))) {
+            LocalDate day = assignment.getAssignmentDate();
+            Shift shift = assignment.getShift();
+            EmployeeState state = assignment.getEmployee() == null ? null : employees.get(assignment.getEmployee().getEmployeeId());
+            ShiftInterval interval = ShiftInterval.of(day, shift);
+            if (interval == null) {
+                if (state != null) {
+                    state.unavailableDays.add(day);
+                }
+                continue;
+            }
+            coveredShifts.computeIfAbsent(day, date -> new HashSet<>()).add(shift.getShiftId());
+            if (state != null) {
+                state.book(employeeBookings, interval, shift, YearMonth.from(day).equals(month));
+            }
+            if (assignment.getVehicle() != null) {
+                vehicleBookings.add(assignment.getVehicle().getVehicleId(), interval, shift);
+            }
+        }
+
+        long maxMonthlyMinutes = constraints.getMaxMonthlyHours() * 60L;
+        long minRestMinutes = constraints.getMinRestHours() * 60L;
+        List<Assignment> generated = new ArrayList<>();
+        List<UnfilledShift> unfilledShifts = new ArrayList<>();
+
+        for (LocalDate day = month.atDay(1); !day.isAfter(month.atEndOfMonth()); day = day.plusDays(1)) {
+            Set<Long> covered = coveredShifts.getOrDefault(day, Collections.emptySet());
+            for (Shift shift : shifts) {
+                if (covered.contains(shift.getShiftId())) {
+                    continue;
+                }
+                ShiftInterval interval = ShiftInterval.of(day, shift);
+                long duration = interval.finish - interval.start;
+
+                Vehicle vehicle = null;
+                for (Vehicle candidate : vehicles) {
+                    if (vehicleBookings.overlapping(candidate.getVehicleId(), interval, 0) == null) {
+                        vehicle = candidate;
+                        break;
+                    }
+                }
+                if (vehicle == null) {
+                    unfilledShifts.add(new UnfilledShift(day, shift.getShiftNumber(), Reason.NO_VEHICLE));
+                    continue;
+                }
+
+                EmployeeState chosen = null;
+                for (EmployeeState state : employees.values()) {
+                    if (state.workedMinutes + duration <= maxMonthlyMinutes
+                            && (chosen == null || state.workedMinutes < chosen.workedMinutes)
+                            && state.canWork(employeeBookings, day, interval, minRestMinutes, constraints.getMaxConsecutiveWorkDays())) {
+                        chosen = state;
+                    }
+                }
+                if (chosen == null) {
+                    unfilledShifts.add(new UnfilledShift(day, shift.getShiftNumber(), Reason.NO_EMPLOYEE));
+                    continue;
+                }
+
+                vehicleBookings.add(vehicle.getVehicleId(), interval, shift);
+                chosen.book(employeeBookings, interval, shift, true);
+                Assignment assignment = new Assignment();
+                assignment.setAssignmentDate(day);
+                assignment.setAssignmentType(assignmentType);
+                assignment.setEmployee(chosen.employee);
+                assignment.setShift(shift);
+                assignment.setVehicle(vehicle);
+                generated.add(assignment);
+            }
+        }
+        return new RosterResult(generated, unfilledShifts);
+    }
+
+    /**
+     * Hours and days off of one employee; their bookings are kept in the generator's employee index.
+     */
+    private static final class EmployeeState {
+        private final Employee employee;
+        private final Set<LocalDate> unavailableDays = new HashSet<>();
+        private long workedMinutes;
+
+        private EmployeeState(Employee employee) {
+            this.employee = employee;
+        }
+
+        private void book(BookingIndex<Shift> employeeBookings, ShiftInterval interval, Shift shift, boolean countsTowardsMonth) {
+            if (countsTowardsMonth) {
+                workedMinutes += interval.finish - interval.start;
+            }
+            employeeBookings.add(employee.getEmployeeId(), interval, shift);
+        }
+
+        private boolean canWork(BookingIndex<Shift> employeeBookings, LocalDate day, ShiftInterval interval,
+                                long minRestMinutes, int maxConsecutiveWorkDays) {
+            return !unavailableDays.contains(day)
+                    && employeeBookings.overlapping(employee.getEmployeeId(), interval, minRestMinutes) == null
+                    && (isWorkDay(employeeBookings, day) || workDaysAround(employeeBookings, day) + 1 <= maxConsecutiveWorkDays);
+        }
+
+        private int workDaysAround(BookingIndex<Shift> employeeBookings, LocalDate day) {
+            int count = 0;
+            for (LocalDate before = day.minusDays(1); isWorkDay(employeeBookings, before); before = before.minusDays(1)) {
+                count++;
+            }
+            for (LocalDate after = day.plusDays(1); isWorkDay(employeeBookings, after); after = after.plusDays(1)) {
+                count++;
+            }
+            return count;
+        }
+
+        private boolean isWorkDay(BookingIndex<Shift> employeeBookings, LocalDate day) {
+            return employeeBookings.hasBookingStartingOn(employee.getEmployeeId(), day);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.ttplan.model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class RosterResult {
+    public enum Reason {
+        NO_EMPLOYEE, NO_VEHICLE
+    }
+
+    private final List<Assignment> assignments;
+    private final List<UnfilledShift> unfilledShifts;
+
+    public RosterResult(List<Assignment> assignments, List<UnfilledShift> unfilledShifts) {
+        this.assignments = assignments;
+        this.unfilledShifts = unfilledShifts;
+    }
+
+    public List<Assignment> getAssignments() {
+        return assignments;
+    }
+
+    public List<UnfilledShift> getUnfilledShifts() {
+        return unfilledShifts;
+    }
+
+    /**
+     * A shift the generator left uncovered on a day, and why.
+     */
+    public static class UnfilledShift {
+        private final LocalDate assignmentDate;
+        private final String shiftNumber;
+        private final Reason reason;
+
+        public UnfilledShift(LocalDate assignmentDate, String shiftNumber, Reason reason) {
+            this.assignmentDate = assignmentDate;
+            this.shiftNumber = shiftNumber;
+            this.reason = reason;
+        }
+
+        public LocalDate getAssignmentDate() {
+            return assignmentDate;
+        }
+
+        public String getShiftNumber() {
+            return shiftNumber;
+        }
+
+        public Reason getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "Shift " + shiftNumber + " on " + assignmentDate
+                    + (reason == Reason.NO_VEHICLE ? " has no free vehicle" : " has no eligible employee");
+        }
+    }
+}
@@ -1,37 +1,48 @@
 package com.ttplan.controller;
 
-import com.ttplan.model.Assignment;
+import com.ttplan.cache.ReferenceDataCache;
+import com.ttplan.event.AssignmentsChangedEvent;
 import com.ttplan.model.Description;
 import com.ttplan.model.Shift;
 import com.ttplan.service.AssignmentService;
-import com.ttplan.service.DescriptionService;
 import com.ttplan.service.ShiftService;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Controller;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import javax.validation.Valid;
+import java.time.YearMonth;
 import java.util.List;
+import java.util.Set;
 
 @Controller
 @RequestMapping("/admin/shifts")
 public class ShiftController {
     private ShiftService shiftService;
     private AssignmentService assignmentService;
-    private DescriptionService descriptionService;
+    private ApplicationEventPublisher eventPublisher;
+    private TransactionTemplate transactionTemplate;
+    private ReferenceDataCache referenceDataCache;
 
-    public ShiftController(ShiftService shiftService, AssignmentService assignmentService, DescriptionService descriptionService) {
+    public ShiftController(ShiftService shiftService, AssignmentService assignmentService,
+                           ApplicationEventPublisher eventPublisher, TransactionTemplate transactionTemplate,
+                           ReferenceDataCache referenceDataCache) {
         super();
         this.shiftService = shiftService;
         this.assignmentService = assignmentService;
-        this.descriptionService = descriptionService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.referenceDataCache = referenceDataCache;
     }
 
     @GetMapping("")
     public String listShifts(Model model) {
-        List<Shift> shifts = shiftService.getAllShifts();
+        List<Shift> shifts = referenceDataCache.getAllShifts();
         model.addAttribute("shifts", shifts);
         return "shift/shifts";
     }
@@ -39,7 +50,7 @@ public class ShiftController {
     @GetMapping("/add")
     public String showAddShiftForm(Model model) {
         Shift shift = new Shift();
-        List<Description> descriptions = descriptionService.getAllDescriptions();
+        List<Description> descriptions = referenceDataCache.getAllDescriptions();
 
         model.addAttribute("shift", shift);
         model.addAttribute("descriptions", descriptions);
@@ -52,23 +63,25 @@ public class ShiftController {
         if (bindingResult.hasErrors()) {
             return "shift/addShift";
         }
-        if (shift.getDescription() != null) {
-            List<Shift> existingShifts = shiftService.getShiftsByDescription(shift.getDescription());
-            if (!existingShifts.isEmpty()) {
-                return "error/errorDescriptionAssignedToShift";
-            }
+        if (shift.getDescription() != null && shiftService.existsByDescription(shift.getDescription())) {
+            return "error/errorDescriptionAssignedToShift";
         }
         shift.calculateTotalTime();
         shift.calculateHoursToPay();
 
         Description description = shift.getDescription();
         if (description != null) {
-            description = descriptionService.getDescriptionById(description.getDescriptionId());
+            description = referenceDataCache.getDescriptionById(description.getDescriptionId());
             shift.setDescription(description);
         }
 
         try {
             shiftService.saveShift(shift);
+        } catch (DataIntegrityViolationException e) {
+            if (shift.getDescription() != null && shiftService.existsByDescription(shift.getDescription())) {
+                return "error/errorDescriptionAssignedToShift";
+            }
+            return "error/error";
         } catch (RuntimeException e) {
             return "error/error";
         }
@@ -80,7 +93,7 @@ public class ShiftController {
     @GetMapping("/edit/{shiftId}")
     public String editShift(@PathVariable Long shiftId, Model model) {
         Shift shift = shiftService.getShiftById(shiftId);
-        List<Description> descriptions = descriptionService.getAllDescriptions();
+        List<Description> descriptions = referenceDataCache.getAllDescriptions();
 
         model.addAttribute("shift", shift);
         model.addAttribute("descriptions", descriptions);
@@ -95,12 +108,8 @@ public class ShiftController {
 
         Shift existingShift = shiftService.getShiftById(shiftId);
 
-        if (shift.getDescription() != null) {
-            List<Shift> existingShifts = shiftService.getShiftsByDescription(shift.getDescription());
-            existingShifts.removeIf(existing -> existing.getShiftId().equals(shiftId));
-            if (!existingShifts.isEmpty()) {
-                return "error/errorDescriptionAssignedToShift";
-            }
+        if (shift.getDescription() != null && shiftService.existsByDescriptionAndShiftIdNot(shift.getDescription(), shiftId)) {
+            return "error/errorDescriptionAssignedToShift";
         }
 
         existingShift.setShiftType(shift.getShiftType());
@@ -108,7 +117,7 @@ public class ShiftController {
 
         Long newDescriptionId = shift.getDescription().getDescriptionId();
         if (newDescriptionId != null) {
-            Description newDescription = descriptionService.getDescriptionById(newDescriptionId);
+            Description newDescription = referenceDataCache.getDescriptionById(newDescriptionId);
             existingShift.setDescription(newDescription);
         } else {
             existingShift.setDescription(null);
@@ -124,12 +133,23 @@ public class ShiftController {
 
         try {
             shiftService.updateShift(existingShift);
+        } catch (DataIntegrityViolationException e) {
+            if (existingShift.getDescription() != null
+                    && shiftService.existsByDescriptionAndShiftIdNot(existingShift.getDescription(), shiftId)) {
+                return "error/errorDescriptionAssignedToShift";
+            }
+            return "error/errorShiftExists";
         } catch (RuntimeException e) {
             return "error/errorShiftExists";
         } catch (Exception e) {
             return "error/error";
         }
 
+        Set<YearMonth> affectedMonths = assignmentService.getAssignmentMonthsByShift(existingShift);
+        if (!affectedMonths.isEmpty()) {
+            eventPublisher.publishEvent(new AssignmentsChangedEvent(affectedMonths));
+        }
+
         return "redirect:/admin/shifts";
     }
 
@@ -139,16 +159,12 @@ public class ShiftController {
         if (shiftId.equals(1L)) {
             return "/error/errorShiftDeletionNotAllowed";
         }
-        Shift shiftToDelete = shiftService.getShiftById(shiftId);
-        List<Assignment> assignmentsWithShift = assignmentService.getAssignmentsByShift(shiftToDelete);
-        if (!assignmentsWithShift.isEmpty()) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Shift shiftToDelete = shiftService.getShiftById(shiftId);
             Shift shiftToAssign = shiftService.getShiftById(1L);
-            for (Assignment assignment : assignmentsWithShift) {
-                assignment.setShift(shiftToAssign);
-                assignmentService.saveAssignment(assignment);
-            }
-        }
-        shiftService.deleteShiftById(shiftId);
+            assignmentService.reassignShift(shiftToDelete, shiftToAssign);
+            shiftService.deleteShiftById(shiftId);
+        });
         return "redirect:/admin/shifts";
     }
 
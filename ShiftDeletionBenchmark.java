@@ -0,0 +1,100 @@
+package com.ttplan.benchmark;
+
+import com.ttplan.model.Assignment;
+import com.ttplan.model.Shift;
+import com.ttplan.repository.AssignmentRepository;
+import com.ttplan.repository.ShiftRepository;
+import com.ttplan.service.AssignmentService;
+import com.ttplan.service.ShiftService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes a shift used by 50k assignments, once with the bulk reassignment ShiftController runs now and
+ * once with the old loop that loaded and saved every assignment on its own. Each invocation gets a
+ * fresh shift and fresh rows, inserted over JDBC so the setup stays out of the way.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ShiftDeletionBenchmark {
+    private static final String INSERT_ASSIGNMENT =
+            "insert into assignment (assignment_date, assignment_type, employee_id, shift_id, vehicle_id) values (?, ?, ?, ?, ?)";
+
+    @Param({"50000"})
+    public int assignmentsPerShift;
+
+    private BenchmarkData data;
+    private AssignmentService assignmentService;
+    private AssignmentRepository assignmentRepository;
+    private ShiftService shiftService;
+    private ShiftRepository shiftRepository;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private Shift placeholderShift;
+    private Shift shiftToDelete;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkData data) {
+        this.data = data;
+        assignmentService = data.getBean(AssignmentService.class);
+        assignmentRepository = data.getBean(AssignmentRepository.class);
+        shiftService = data.getBean(ShiftService.class);
+        shiftRepository = data.getBean(ShiftRepository.class);
+        jdbcTemplate = data.getBean(JdbcTemplate.class);
+        transactionTemplate = data.getBean(TransactionTemplate.class);
+        placeholderShift = data.generator.randomShift();
+    }
+
+    @Setup(Level.Invocation)
+    public void createShiftWithAssignments() {
+        Shift shift = new Shift();
+        shift.setShiftNumber("DEL");
+        shift.setShiftType("Regular");
+        shift.setStartTime(LocalTime.of(6, 0));
+        shift.setFinishTime(LocalTime.of(14, 0));
+        shift.calculateTotalTime();
+        shift.calculateHoursToPay();
+        shiftToDelete = shiftRepository.save(shift);
+
+        LocalDate firstDay = LocalDate.now().withDayOfMonth(1).minusYears(1);
+        List<Object[]> rows = new ArrayList<>(assignmentsPerShift);
+        for (int i = 0; i < assignmentsPerShift; i++) {
+            rows.add(new Object[]{
+                    Date.valueOf(firstDay.plusDays(i % 365)),
+                    AssignmentDataGenerator.ASSIGNMENT_TYPES[0],
+                    data.generator.randomEmployee().getEmployeeId(),
+                    shiftToDelete.getShiftId(),
+                    data.generator.randomVehicle().getVehicleId()});
+        }
+        jdbcTemplate.batchUpdate(INSERT_ASSIGNMENT, rows);
+    }
+
+    @Benchmark
+    public void bulkReassignAndDelete() {
+        transactionTemplate.executeWithoutResult(status -> {
+            assignmentService.reassignShift(shiftToDelete, placeholderShift);
+            shiftService.deleteShiftById(shiftToDelete.getShiftId());
+        });
+    }
+
+    @Benchmark
+    public void saveEachAssignmentAndDelete() {
+        for (Assignment assignment : assignmentService.getAssignmentsByShift(shiftToDelete)) {
+            assignment.setShift(placeholderShift);
+            assignmentRepository.save(assignment);
+        }
+        shiftService.deleteShiftById(shiftToDelete.getShiftId());
+    }
+}
@@ -0,0 +1,61 @@
+package com.ttplan.service.impl;
+
+import com.ttplan.model.Shift;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * The time a shift books on a day, in minutes since the epoch. A shift finishing at or before its start
+ * runs past midnight; a shift without times or whose start equals its finish (e.g. a day off) books
+ * nothing.
+ */
+final class ShiftInterval {
+    static final long MINUTES_PER_DAY = 24 * 60;
+
+    final long start;
+    final long finish;
+
+    private ShiftInterval(long start, long finish) {
+        this.start = start;
+        this.finish = finish;
+    }
+
+    /**
+     * The interval the shift books on the day, or null if it books nothing.
+     */
+    static ShiftInterval of(LocalDate day, Shift shift) {
+        if (day == null || shift == null) {
+            return null;
+        }
+        long duration = durationMinutes(shift);
+        if (duration == 0) {
+            return null;
+        }
+        long start = day.toEpochDay() * MINUTES_PER_DAY + minuteOfDay(shift.getStartTime());
+        return new ShiftInterval(start, start + duration);
+    }
+
+    static long durationMinutes(Shift shift) {
+        if (shift.getStartTime() == null || shift.getFinishTime() == null) {
+            return 0;
+        }
+        long duration = minuteOfDay(shift.getFinishTime()) - minuteOfDay(shift.getStartTime());
+        return duration < 0 ? duration + MINUTES_PER_DAY : duration;
+    }
+
+    long startDay() {
+        return Math.floorDiv(start, MINUTES_PER_DAY);
+    }
+
+    /**
+     * Whether the intervals overlap or come closer than the gap.
+     */
+    boolean overlaps(ShiftInterval other, long gapMinutes) {
+        return start < other.finish + gapMinutes && other.start < finish + gapMinutes;
+    }
+
+    private static long minuteOfDay(LocalTime time) {
+        return time.getHour() * 60L + time.getMinute();
+    }
+}
@@ -0,0 +1,26 @@
+package com.ttplan.benchmark;
+
+import com.ttplan.metrics.SqlStatementCounter;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Reports SQL statements next to the timing. {@code statements / calls} is the number of queries one
+ * benchmark invocation issued.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class SqlStatementCount {
+    public long statements;
+    public long calls;
+
+    @Setup(Level.Invocation)
+    public void reset() {
+        SqlStatementCounter.reset();
+    }
+
+    @TearDown(Level.Invocation)
+    public void record() {
+        statements += SqlStatementCounter.getCount();
+        calls++;
+    }
+}
@@ -0,0 +1,25 @@
+package com.ttplan.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread, so the number of database
+ * round trips can be recorded per request. Registered through hibernate.session_factory.statement_inspector.
+ */
+public class SqlStatementCounter implements StatementInspector {
+    private static final ThreadLocal<int[]> STATEMENT_COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENT_COUNT.get()[0]++;
+        return sql;
+    }
+
+    public static void reset() {
+        STATEMENT_COUNT.get()[0] = 0;
+    }
+
+    public static int getCount() {
+        return STATEMENT_COUNT.get()[0];
+    }
+}